@@ -0,0 +1,83 @@
+package session;
+
+import domain.Employee;
+import utility.PropertyAccessor;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+
+//maps in-memory employee rows with the reflective and the generated mapper and prints rows per second for both
+class RowMapperBenchmark {
+    private static final int ROWS = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : ROWS;
+        Object[][] data = createRows(rows);
+
+        PropertyAccessor[] accessors = PropertyAccessor.forClass(Employee.class).values().toArray(new PropertyAccessor[0]);
+        RowMapper<Employee> generated = RowMapperGenerator.generate(Employee.class, accessors);
+        if (generated == null) {
+            throw new IllegalStateException("Employee could not be compiled to a generated mapper");
+        }
+        CompiledRowMapper<Employee> reflective = new CompiledRowMapper<>(Employee.class.getDeclaredConstructor(), accessors, null);
+        CompiledRowMapper<Employee> compiled = new CompiledRowMapper<>(Employee.class.getDeclaredConstructor(), accessors, generated);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long reflectiveRate = run(reflective, data);
+            long generatedRate = run(compiled, data);
+            System.out.printf("round %d: reflective %,d rows/s, generated %,d rows/s (%.2fx)%n",
+                    round, reflectiveRate, generatedRate, (double) generatedRate / reflectiveRate);
+        }
+    }
+
+    private static long run(RowMapper<Employee> rowMapper, Object[][] data) throws Exception {
+        ResultSet rs = createResultSet(data);
+        long checksum = 0;
+        long start = System.nanoTime();
+        //same loop as SqlSession.getObjectList, minus the list
+        while (rs.next()) {
+            Employee employee = rowMapper.map(rs);
+            checksum += employee.employeeId + employee.firstName.length();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (checksum == 0) {
+            throw new IllegalStateException("No rows were mapped");
+        }
+        return data.length * 1_000_000_000L / Math.max(elapsed, 1);
+    }
+
+    private static Object[][] createRows(int rows) {
+        Object[][] data = new Object[rows][];
+        Date hireDate = Date.valueOf("2020-01-01");
+        for (int i = 0; i < rows; i++) {
+            data[i] = new Object[]{i + 1, "First" + i, "Last" + i, "e" + i + "@example.com", "555-" + i,
+                    hireDate, BigDecimal.valueOf(1000 + i % 100), i % 20, i % 10, i % 50};
+        }
+        return data;
+    }
+
+    //the proxy costs the same for both mappers, so the difference between them is the mapping itself
+    private static ResultSet createResultSet(Object[][] data) {
+        int[] row = {-1};
+        return (ResultSet) Proxy.newProxyInstance(RowMapperBenchmark.class.getClassLoader(), new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++row[0] < data.length;
+                case "getInt":
+                case "getString":
+                case "getObject":
+                case "getBigDecimal":
+                    return data[row[0]][(Integer) args[0] - 1];
+                case "wasNull":
+                    return false;
+                case "close":
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
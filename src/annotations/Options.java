@@ -8,4 +8,7 @@ public @interface Options {
     boolean useGeneratedKeys() default false;
     String keyProperty() default "";
     boolean flushCache() default false;
+    int fetchSize() default -1;
+    int timeout() default -1;
+    int maxRows() default -1;
 }
@@ -10,6 +10,7 @@ public class Configuration {
     Map<String, Environment> environments;
     Environment defaultEnvironment;
     Properties properties;
+    Properties settings;
     Map<String, TypeAlias> typeAliases;
     Map<String, Mapper> mappers;
     Set<Class<?>> classMappers;
@@ -23,6 +24,8 @@ public class Configuration {
         this.properties = properties;
         this.typeAliases = typeAliases;
         this.queriesWithNamespace = new HashMap<>();
+        this.resultMapsWithNamespace = new HashMap<>();
+        this.settings = new Properties();
     }
 
     public Mapper getMapperByNamespace(String namespace) {
@@ -49,7 +52,7 @@ public class Configuration {
         return this.queriesWithNamespace.get(queryId);
     }
     private String getNamespaceByResultMapId(String resultMapId) {
-        return this.queriesWithNamespace.get(resultMapId);
+        return this.resultMapsWithNamespace.get(resultMapId);
     }
 
     public Map<String, SqlSessionFactory> getEnvironmentFactories() {
@@ -59,13 +62,13 @@ public class Configuration {
     public Query getQueryById(String queryId) {
         String namespace = getNamespaceByQueryId(queryId);
         Mapper m = getMapperByNamespace(namespace);
-        return m.getQueryById(queryId);
+        return m == null ? null : m.getQueryById(queryId);
     }
 
     public ResultMap getResultMapById(String resultMapId) {
         String namespace = getNamespaceByResultMapId(resultMapId);
         Mapper m = getMapperByNamespace(namespace);
-        return m.getResultMapById(resultMapId);
+        return m == null ? null : m.getResultMapById(resultMapId);
     }
 
     public Map<String, Environment> getEnvironments() {
@@ -92,6 +95,11 @@ public class Configuration {
             for (String queryId : queries.keySet()) {
                 this.queriesWithNamespace.put(queryId, namespace);
             }
+            if (m.resultMaps != null) {
+                for (String resultMapId : m.resultMaps.keySet()) {
+                    this.resultMapsWithNamespace.put(resultMapId, namespace);
+                }
+            }
         }
     }
 
@@ -103,5 +111,54 @@ public class Configuration {
         this.properties = properties;
     }
 
+    public Properties getSettings() {
+        return settings;
+    }
+
+    public void setSettings(Properties settings) {
+        this.settings = settings;
+    }
+
+    public boolean isUseVirtualThreads() {
+        return Boolean.parseBoolean(settings.getProperty("useVirtualThreads", "false").trim());
+    }
+
+    public String getDefaultExecutorType() {
+        return settings.getProperty("defaultExecutorType", "SIMPLE").trim().toUpperCase();
+    }
+
+    public Integer getDefaultFetchSize() {
+        return getIntegerSetting("defaultFetchSize");
+    }
+
+    public Integer getDefaultStatementTimeout() {
+        return getIntegerSetting("defaultStatementTimeout");
+    }
+
+    public Integer getDefaultMaxRows() {
+        return getIntegerSetting("defaultMaxRows");
+    }
+
+    private Integer getIntegerSetting(String name) {
+        String value = settings.getProperty(name);
+        return value == null ? null : Integer.valueOf(value.trim());
+    }
+
+    public int getCursorFetchSize() {
+        return Integer.parseInt(settings.getProperty("cursorFetchSize", "1000").trim());
+    }
+
+    public int getInsertChunkSize() {
+        return Integer.parseInt(settings.getProperty("insertChunkSize", "500").trim());
+    }
+
+    public int getBatchFlushSize() {
+        return Integer.parseInt(settings.getProperty("batchFlushSize", "1000").trim());
+    }
+
+    public int getAsyncMaxInFlight() {
+        return Integer.parseInt(settings.getProperty("asyncMaxInFlight", "64").trim());
+    }
+
 
 }
@@ -1,23 +1,47 @@
 package dto;
 
 import dto.data_source.DataSource;
+import transaction.JdbcTransactionFactory;
+import transaction.ManagedTransactionFactory;
+import transaction.TransactionFactory;
 
 public class Environment {
     String id;
     String transactionManagerType;
     DataSource dataSource;
+    TransactionFactory transactionFactory;
 
     public Environment(String id, String transactionManagerType, DataSource dataSource) {
         this.id = id;
         this.transactionManagerType = transactionManagerType;
         this.dataSource = dataSource;
+        this.transactionFactory = getTransactionFactory(transactionManagerType);
+    }
+
+    private static TransactionFactory getTransactionFactory(String type) {
+        if (type == null) {
+            return new JdbcTransactionFactory();
+        }
+        return switch (type.trim().toUpperCase()) {
+            case "JDBC" -> new JdbcTransactionFactory();
+            case "MANAGED" -> new ManagedTransactionFactory();
+            default -> throw new IllegalArgumentException("Invalid transaction manager type: " + type);
+        };
     }
 
     public String getId() {
         return id;
     }
 
+    public String getTransactionManagerType() {
+        return transactionManagerType;
+    }
+
     public DataSource getDataSource() {
         return dataSource;
     }
+
+    public TransactionFactory getTransactionFactory() {
+        return transactionFactory;
+    }
 }
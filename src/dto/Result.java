@@ -9,6 +9,10 @@ public class Result {
         this.column = column;
     }
 
+    public String getProperty() {
+        return property;
+    }
+
     public String getColumn() {
         return column;
     }
@@ -18,4 +18,16 @@ public class ResultMap {
     public String getId() {
         return id;
     }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public Map<String, Result> getResults() {
+        return results;
+    }
+
+    public Result getResultId() {
+        return resultId;
+    }
 }
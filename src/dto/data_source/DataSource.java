@@ -1,5 +1,8 @@
 package dto.data_source;
 
+import utility.ConnectionPriority;
+import utility.StatementCache;
+
 import java.sql.*;
 import java.util.Properties;
 
@@ -30,4 +33,23 @@ public abstract class DataSource {
     }
 
     public abstract Connection getConnection() throws Exception;
+
+    public Connection getConnection(ConnectionPriority priority) throws Exception {
+        return getConnection();
+    }
+
+    public Connection getConnection(ConnectionPriority priority, long timeoutMillis) throws Exception {
+        return getConnection(priority);
+    }
+
+    public void releaseConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    public StatementCache getStatementCache(Connection connection) {
+        return null;
+    }
+
+    public void close() {
+    }
 }
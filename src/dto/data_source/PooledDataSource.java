@@ -1,18 +1,46 @@
 package dto.data_source;
 
+import dto.Configuration;
+import dto.queries.Query;
+import utility.ConnectionPriority;
 import utility.DatabaseConnectionPool;
+import utility.PoolConfiguration;
+import utility.StatementCache;
 
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 public class PooledDataSource extends DataSource {
-    private static final int DEFAULT_POOL_SIZE = 10;
+    private final PoolConfiguration poolConfiguration;
     private final DatabaseConnectionPool dcp;
 
     public PooledDataSource(Properties properties) throws Exception {
         super(properties);
-        DatabaseConnectionPool.init(this.url, this.user, this.password, DEFAULT_POOL_SIZE);
-        this.dcp = DatabaseConnectionPool.getConnectionPool();
+        this.poolConfiguration = new PoolConfiguration(properties);
+        this.dcp = new DatabaseConnectionPool(this.url, this.user, this.password, poolConfiguration);
+    }
+
+    public void prepareWarmUpStatements(Configuration configuration) {
+        List<String> sqls = resolveWarmUpStatements(configuration);
+        if (!sqls.isEmpty()) {
+            dcp.setWarmUpStatements(sqls);
+        }
+    }
+
+    protected List<String> resolveWarmUpStatements(Configuration configuration) {
+        List<String> queryIds = poolConfiguration.getWarmUpStatements();
+        List<String> sqls = new ArrayList<>();
+        for (String queryId : queryIds) {
+            Query query = configuration.getQueryById(queryId);
+            if (query == null) {
+                throw new IllegalArgumentException("Unknown warm-up statement: " + queryId);
+            }
+            sqls.add(query.getSql());
+        }
+        return sqls;
     }
 
     @Override
@@ -20,6 +48,35 @@ public class PooledDataSource extends DataSource {
         return dcp.getConnection();
     }
 
+    @Override
+    public Connection getConnection(ConnectionPriority priority) throws Exception {
+        return dcp.getConnection(priority);
+    }
+
+    @Override
+    public Connection getConnection(ConnectionPriority priority, long timeoutMillis) throws Exception {
+        return dcp.getConnection(Math.min(timeoutMillis, poolConfiguration.getAcquireTimeout()), priority);
+    }
+
+    @Override
+    public void releaseConnection(Connection connection) throws SQLException {
+        dcp.releaseConnection(connection);
+    }
+
+    @Override
+    public StatementCache getStatementCache(Connection connection) {
+        return dcp.getStatementCache(connection);
+    }
+
+    @Override
+    public void close() {
+        dcp.close();
+    }
+
+    public PoolConfiguration getPoolConfiguration() {
+        return poolConfiguration;
+    }
+
     public DatabaseConnectionPool getDcp() {
         return dcp;
     }
@@ -0,0 +1,204 @@
+package dto.data_source;
+
+import dto.Configuration;
+import utility.ConnectionPriority;
+import utility.DatabaseConnectionPool;
+import utility.PoolConfiguration;
+import utility.StatementCache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class RoutingDataSource extends PooledDataSource {
+    public enum LOAD_BALANCER { LEAST_OUTSTANDING, WEIGHTED_ROUND_ROBIN }
+
+    private static final Logger LOGGER = Logger.getLogger(RoutingDataSource.class.getName());
+
+    private final Replica[] replicas;
+    private final int totalWeight;
+    private final LOAD_BALANCER loadBalancer;
+    private final long readYourWritesWindow;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Connection, Replica> borrowed = new ConcurrentHashMap<>();
+
+    public RoutingDataSource(Properties properties) throws Exception {
+        super(properties);
+        try {
+            List<String> urls = split(properties.getProperty("replicas"));
+            List<String> weights = split(properties.getProperty("replicaWeights"));
+            if (urls.isEmpty()) {
+                throw new IllegalArgumentException("ROUTING data source requires at least one replica");
+            }
+            if (!weights.isEmpty() && weights.size() != urls.size()) {
+                throw new IllegalArgumentException("replicaWeights must have one weight per replica");
+            }
+
+            this.loadBalancer = LOAD_BALANCER.valueOf(properties.getProperty("loadBalancer", LOAD_BALANCER.LEAST_OUTSTANDING.name()).trim().toUpperCase());
+            this.readYourWritesWindow = Long.parseLong(properties.getProperty("readYourWritesWindow", "0").trim());
+            this.replicas = new Replica[urls.size()];
+
+            int total = 0;
+            String poolName = getPoolConfiguration().getPoolName();
+            for (int i = 0; i < urls.size(); i++) {
+                int weight = weights.isEmpty() ? 1 : Integer.parseInt(weights.get(i));
+                if (weight < 1) {
+                    throw new IllegalArgumentException("replicaWeights must be at least 1");
+                }
+
+                Properties replicaProperties = new Properties();
+                replicaProperties.putAll(properties);
+                replicaProperties.setProperty("url", urls.get(i));
+                replicaProperties.setProperty("poolName", poolName + "-replica-" + (i + 1));
+                PoolConfiguration replicaConfiguration = new PoolConfiguration(replicaProperties);
+                replicas[i] = new Replica(new DatabaseConnectionPool(urls.get(i), this.user, this.password, replicaConfiguration), weight);
+                total += weight;
+            }
+            this.totalWeight = total;
+        } catch (Exception e) {
+            close();
+            throw e;
+        }
+    }
+
+    private static List<String> split(String value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> values = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.isBlank()) {
+                values.add(item.trim());
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void prepareWarmUpStatements(Configuration configuration) {
+        super.prepareWarmUpStatements(configuration);
+        List<String> sqls = resolveWarmUpStatements(configuration);
+        if (sqls.isEmpty()) {
+            return;
+        }
+
+        for (Replica replica : replicas) {
+            replica.dcp.setWarmUpStatements(sqls);
+        }
+    }
+
+    public Connection getReadConnection(ConnectionPriority priority) throws Exception {
+        return getReadConnection(priority, getPoolConfiguration().getAcquireTimeout());
+    }
+
+    public Connection getReadConnection(ConnectionPriority priority, long timeoutMillis) throws Exception {
+        long start = System.nanoTime();
+        Replica replica = chooseReplica();
+        replica.outstanding.incrementAndGet();
+        try {
+            Connection connection = replica.dcp.getConnection(Math.min(timeoutMillis, replica.dcp.getConfiguration().getAcquireTimeout()), priority);
+            borrowed.put(connection, replica);
+            return connection;
+        } catch (SQLException e) {
+            replica.outstanding.decrementAndGet();
+            LOGGER.log(Level.WARNING, "Replica " + replica.dcp.getPoolName() + " unavailable, reading from primary", e);
+            //the fallback only gets what is left of the caller's budget
+            long remaining = timeoutMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (remaining <= 0) {
+                throw e;
+            }
+            return getConnection(priority, remaining);
+        }
+    }
+
+    private Replica chooseReplica() {
+        long tick = sequence.getAndIncrement();
+
+        if (loadBalancer == LOAD_BALANCER.WEIGHTED_ROUND_ROBIN) {
+            long point = Math.floorMod(tick, (long) totalWeight);
+            for (Replica replica : replicas) {
+                point -= replica.weight;
+                if (point < 0) {
+                    return replica;
+                }
+            }
+        }
+
+        //rotate the starting point so that idle replicas share the load evenly
+        int start = (int) Math.floorMod(tick, (long) replicas.length);
+        Replica best = replicas[start];
+        for (int i = 1; i < replicas.length; i++) {
+            Replica candidate = replicas[(start + i) % replicas.length];
+            if ((long) candidate.outstanding.get() * best.weight < (long) best.outstanding.get() * candidate.weight) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void releaseConnection(Connection connection) throws SQLException {
+        Replica replica = borrowed.remove(connection);
+        if (replica == null) {
+            super.releaseConnection(connection);
+            return;
+        }
+
+        replica.outstanding.decrementAndGet();
+        replica.dcp.releaseConnection(connection);
+    }
+
+    @Override
+    public StatementCache getStatementCache(Connection connection) {
+        Replica replica = borrowed.get(connection);
+        return replica == null ? super.getStatementCache(connection) : replica.dcp.getStatementCache(connection);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (replicas == null) {
+            return;
+        }
+
+        for (Replica replica : replicas) {
+            if (replica != null) {
+                replica.dcp.close();
+            }
+        }
+    }
+
+    public long getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    public LOAD_BALANCER getLoadBalancer() {
+        return loadBalancer;
+    }
+
+    public List<DatabaseConnectionPool> getReplicaPools() {
+        List<DatabaseConnectionPool> pools = new ArrayList<>();
+        for (Replica replica : replicas) {
+            pools.add(replica.dcp);
+        }
+        return pools;
+    }
+
+    private static class Replica {
+        final DatabaseConnectionPool dcp;
+        final int weight;
+        final AtomicInteger outstanding = new AtomicInteger();
+
+        Replica(DatabaseConnectionPool dcp, int weight) {
+            this.dcp = dcp;
+            this.weight = weight;
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package dto.queries;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 public class InsertQuery extends Query {
+    private static final Pattern VALUES_PATTERN = Pattern.compile("\\bvalues\\s*\\(", Pattern.CASE_INSENSITIVE);
+
     boolean useGeneratedKeys;
     String keyProperty;
     boolean flushCache;
+    String valuesPrefix;
+    String valuesRow;
+    String valuesSuffix;
 
     public InsertQuery(QUERY_TYPE queryType,
                        String id,
@@ -16,6 +24,59 @@ public class InsertQuery extends Query {
         this.useGeneratedKeys = useGeneratedKeys;
         this.keyProperty = keyProperty;
         this.flushCache = flushCache;
+        splitValues(getSql());
+    }
+
+    private void splitValues(String sql) {
+        Matcher matcher = VALUES_PATTERN.matcher(sql);
+        if (!matcher.find()) {
+            return;
+        }
+
+        int start = matcher.end() - 1;
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = start; i < sql.length(); i++) {
+            char ch = sql.charAt(i);
+            if (ch == '\'') {
+                quoted = !quoted;
+            } else if (quoted) {
+                continue;
+            } else if (ch == '(') {
+                depth++;
+            } else if (ch == ')' && --depth == 0) {
+                String suffix = sql.substring(i + 1);
+                //parameters after the row would have to be bound once per statement
+                if (suffix.indexOf('?') >= 0 || suffix.trim().startsWith(",")) {
+                    return;
+                }
+                this.valuesPrefix = sql.substring(0, start);
+                this.valuesRow = sql.substring(start, i + 1);
+                this.valuesSuffix = suffix;
+                return;
+            }
+        }
+    }
+
+    public boolean isMultiRowCapable() {
+        return valuesRow != null;
+    }
+
+    public String getMultiRowSql(int rows) {
+        if (valuesRow == null) {
+            throw new IllegalStateException("Insert " + getId() + " can not be expanded into a multi-row insert");
+        }
+
+        StringBuilder sb = new StringBuilder(valuesPrefix.length() + (valuesRow.length() + 1) * rows + valuesSuffix.length());
+        sb.append(valuesPrefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(valuesRow);
+        }
+        sb.append(valuesSuffix);
+        return sb.toString();
     }
 
     public boolean isUseGeneratedKeys() {
@@ -1,6 +1,5 @@
 package dto.queries;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -8,6 +7,8 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import utility.PropertyAccessor;
+
 public class Query {
     private static final Pattern PARAM_PATTERN = Pattern.compile("\\#\\{([\\w\\d]+)\\}");
     public enum QUERY_TYPE { SELECT, INSERT, UPDATE, DELETE }
@@ -17,7 +18,10 @@ public class Query {
     Class<?> parameterType;
     String sql;
     List<String> paramNames;
-    Map<String, Field> fieldsMap;
+    Map<String, PropertyAccessor> fieldsMap;
+    Integer fetchSize;
+    Integer timeout;
+    Integer maxRows;
 
     public Query(QUERY_TYPE queryType, String id, Class<?> parameterType, String sql) {
         this.queryType = queryType;
@@ -38,16 +42,15 @@ public class Query {
         });
     }
 
-    protected <T> HashMap<String, Field> getFieldsMap(Class<T> c) {
-        HashMap<String, Field> fieldsMap = new HashMap<>();
+    protected <T> HashMap<String, PropertyAccessor> getFieldsMap(Class<T> c) {
+        HashMap<String, PropertyAccessor> fieldsMap = new HashMap<>();
         if (c == null) {
             return null;
         }
-        Field[] fields = c.getDeclaredFields();
 
-        for (Field f : fields) {
-            String fName = getNormalizedFieldName(f.getName());
-            fieldsMap.put(fName, f);
+        for (PropertyAccessor accessor : PropertyAccessor.forClass(c).values()) {
+            String fName = getNormalizedFieldName(accessor.getName());
+            fieldsMap.put(fName, accessor);
         }
 
         return fieldsMap;
@@ -73,7 +76,7 @@ public class Query {
         return queryType;
     }
 
-    public Map<String, Field> getFieldsMap() {
+    public Map<String, PropertyAccessor> getFieldsMap() {
         return fieldsMap;
     }
 
@@ -88,4 +91,28 @@ public class Query {
     public List<String> getParamNames() {
         return paramNames;
     }
+
+    public Integer getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(Integer fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public Integer getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Integer timeout) {
+        this.timeout = timeout;
+    }
+
+    public Integer getMaxRows() {
+        return maxRows;
+    }
+
+    public void setMaxRows(Integer maxRows) {
+        this.maxRows = maxRows;
+    }
 }
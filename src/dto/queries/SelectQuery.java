@@ -1,13 +1,17 @@
 package dto.queries;
 
-import java.lang.reflect.Field;
+import utility.PropertyAccessor;
+
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 public class SelectQuery extends Query {
     Class<?> resultType;
-    Map<String, Field> resultFieldsMap;
+    Map<String, PropertyAccessor> resultFieldsMap;
     String resultMapId;
     boolean useCaching;
+    AtomicReference<Object> rowMapperCache = new AtomicReference<>();
 
 
     public SelectQuery(QUERY_TYPE queryType,
@@ -28,15 +32,29 @@ public class SelectQuery extends Query {
         return resultType;
     }
 
-    public Map<String, Field> getFieldsMap() {
+    public Map<String, PropertyAccessor> getFieldsMap() {
         return fieldsMap;
     }
 
-    public Map<String, Field> getResultFieldsMap() {
+    public String getResultMapId() {
+        return resultMapId;
+    }
+
+    public Map<String, PropertyAccessor> getResultFieldsMap() {
         return resultFieldsMap;
     }
 
     public boolean isUseCaching() {
         return useCaching;
     }
+
+    //the session layer owns the cache and its type, the query only keeps it alive alongside its sql
+    public Object getRowMapperCache(Supplier<?> factory) {
+        Object cache = rowMapperCache.get();
+        if (cache == null) {
+            rowMapperCache.compareAndSet(null, factory.get());
+            cache = rowMapperCache.get();
+        }
+        return cache;
+    }
 }
@@ -1,6 +1,8 @@
 package exceptions;
 
 public class IbatisException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     public IbatisException() {
         super();
     }
@@ -1,6 +1,8 @@
 package exceptions;
 
 public class PersistenceException extends IbatisException {
+    private static final long serialVersionUID = 1L;
+
     public PersistenceException() {
         super();
     }
@@ -1,6 +1,8 @@
 package exceptions;
 
 public class TooManyResultsException extends PersistenceException {
+    private static final long serialVersionUID = 1L;
+
     public TooManyResultsException() {
         super();
     }
@@ -1,15 +1,26 @@
 package handlers;
 
+import annotations.MapKey;
 import dto.Configuration;
 import dto.Mapper;
 import dto.queries.*;
+import session.Cursor;
+import session.ResultHandler;
+import session.RowBounds;
 import session.SqlSession;
 import utility.Cache;
+import utility.LongKeyMap;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.util.List;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class DaoHandler implements InvocationHandler {
     private final SqlSession session;
@@ -26,6 +37,9 @@ public class DaoHandler implements InvocationHandler {
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (CompletableFuture.class.equals(method.getReturnType())) {
+            return invokeAsync(proxy, method, args);
+        }
         return caches == null ?
                 invokeWithoutCache(proxy, method, args) :
                 invokeFromCache(proxy, method, args);
@@ -33,6 +47,7 @@ public class DaoHandler implements InvocationHandler {
 
     private Object invokeFromCache(Object proxy, Method method, Object[] args) throws Throwable {
         String queryId = method.getName();
+        Object param = getParameter(args);
         Query query = configuration.getQueryById(queryId);
         Query.QUERY_TYPE queryType = query.getQueryType();
 
@@ -42,28 +57,38 @@ public class DaoHandler implements InvocationHandler {
                 if (insertQuery.isFlushCache()) {
                     flushAllCaches();
                 }
-                return session.insert(queryId, args[0]);
+                return session.insert(queryId, param);
             }
             case UPDATE -> {
                 UpdateQuery updateQuery = (UpdateQuery) query;
                 if (updateQuery.isFlushCache()) {
                     flushAllCaches();
                 }
-                return session.update(queryId, args[0]);
+                return session.update(queryId, param);
             }
             case DELETE -> {
                 DeleteQuery deleteQuery = (DeleteQuery) query;
                 if (deleteQuery.isFlushCache()) {
                     flushAllCaches();
                 }
-                return session.delete(queryId, args[0]);
+                return session.delete(queryId, param);
             }
             case SELECT -> {
+                ResultHandler<Object> handler = getResultHandler(args);
+                if (handler != null) {
+                    session.select(queryId, param, handler);
+                    return null;
+                }
+                RowBounds rowBounds = getRowBounds(args);
+                if (rowBounds != null) {
+                    return session.selectList(queryId, param, rowBounds);
+                }
                 SelectQuery selectQuery = (SelectQuery) query;
-                Class<?> resultType = selectQuery.getResultType();
-                boolean useCache = selectQuery.isUseCaching();
-                return useCache ? invokeSelectFromCache(queryId, method.getName(), args[0], resultType) :
-                        invokeSelect(queryId, args[0], resultType);
+                Class<?> returnType = method.getReturnType();
+                //lazily fetched results can not be cached
+                boolean useCache = selectQuery.isUseCaching() && !isLazy(returnType);
+                return useCache ? invokeSelectFromCache(queryId, method, param, returnType) :
+                        invokeSelect(queryId, method, param, returnType);
             }
         }
         return  method.invoke(proxy, args);
@@ -78,32 +103,180 @@ public class DaoHandler implements InvocationHandler {
 
     private Object invokeWithoutCache(Object proxy, Method method, Object[] args) throws Throwable {
         String queryId = method.getName();
+        Object param = getParameter(args);
         Query query = configuration.getQueryById(queryId);
         Query.QUERY_TYPE queryType = query.getQueryType();
 
         switch (queryType) {
             case INSERT:
-                return session.insert(queryId, args[0]);
+                return session.insert(queryId, param);
             case UPDATE:
-                return session.update(queryId, args[0]);
+                return session.update(queryId, param);
             case DELETE:
-                return session.delete(queryId, args[0]);
+                return session.delete(queryId, param);
             case SELECT:
-                SelectQuery selectQuery = (SelectQuery) query;
-                Class<?> resultType = selectQuery.getResultType();
-                return invokeSelect(queryId, args[0], resultType);
+                ResultHandler<Object> handler = getResultHandler(args);
+                if (handler != null) {
+                    session.select(queryId, param, handler);
+                    return null;
+                }
+                RowBounds rowBounds = getRowBounds(args);
+                return rowBounds != null ?
+                        session.selectList(queryId, param, rowBounds) :
+                        invokeSelect(queryId, method, param, method.getReturnType());
         }
         return  method.invoke(proxy, args);
     }
 
-    private Object invokeSelect(String queryId, Object param, Class<?> resultType) throws Throwable {
-        return resultType.equals(List.class) ?
+    private Object invokeAsync(Object proxy, Method method, Object[] args) throws Throwable {
+        String queryId = method.getName();
+        Object param = getParameter(args);
+        Query query = configuration.getQueryById(queryId);
+
+        switch (query.getQueryType()) {
+            case INSERT:
+                return writeAsync(query, () -> session.insertAsync(queryId, param));
+            case UPDATE:
+                return writeAsync(query, () -> session.updateAsync(queryId, param));
+            case DELETE:
+                return writeAsync(query, () -> session.deleteAsync(queryId, param));
+            case SELECT:
+                RowBounds rowBounds = getRowBounds(args);
+                if (rowBounds != null) {
+                    return session.selectListAsync(queryId, param, rowBounds);
+                }
+                SelectQuery selectQuery = (SelectQuery) query;
+                Cache<Object, Object> cache = caches != null && selectQuery.isUseCaching() ? caches.get(queryId) : null;
+                if (cache == null) {
+                    return selectAsync(queryId, method, param);
+                }
+                Object res = cache.get(param);
+                if (res != null) {
+                    return CompletableFuture.completedFuture(res);
+                }
+                return selectAsync(queryId, method, param).thenApply(result -> {
+                    cache.set(param, result);
+                    return result;
+                });
+        }
+        return method.invoke(proxy, args);
+    }
+
+    private CompletableFuture<Integer> writeAsync(Query query, Supplier<CompletableFuture<Integer>> write) {
+        if (caches == null || !isFlushCache(query)) {
+            return write.get();
+        }
+
+        flushAllCaches();
+        //a select cached while the write was still running would keep the old rows
+        return write.get().whenComplete((count, error) -> flushAllCaches());
+    }
+
+    private boolean isFlushCache(Query query) {
+        if (query instanceof InsertQuery insertQuery) {
+            return insertQuery.isFlushCache();
+        }
+        if (query instanceof UpdateQuery updateQuery) {
+            return updateQuery.isFlushCache();
+        }
+        return query instanceof DeleteQuery deleteQuery && deleteQuery.isFlushCache();
+    }
+
+    private CompletableFuture<?> selectAsync(String queryId, Method method, Object param) {
+        Class<?> futureType = getFutureType(method);
+        MapKey mapKey = method.getAnnotation(MapKey.class);
+        if (mapKey != null) {
+            return LongKeyMap.class.equals(futureType) ?
+                    session.selectLongMapAsync(queryId, param, mapKey.value()) :
+                    session.selectMapAsync(queryId, param, mapKey.value());
+        }
+        return Collection.class.isAssignableFrom(futureType) ?
+                session.selectListAsync(queryId, param) :
+                session.selectOneAsync(queryId, param);
+    }
+
+    private Class<?> getFutureType(Method method) {
+        if (method.getGenericReturnType() instanceof ParameterizedType futureType) {
+            Type resultType = futureType.getActualTypeArguments()[0];
+            if (resultType instanceof ParameterizedType parameterizedType) {
+                return (Class<?>) parameterizedType.getRawType();
+            }
+            if (resultType instanceof Class<?> resultClass) {
+                return resultClass;
+            }
+        }
+        return Object.class;
+    }
+
+    private Object invokeSelect(String queryId, Method method, Object param, Class<?> returnType) throws Throwable {
+        MapKey mapKey = method.getAnnotation(MapKey.class);
+        if (mapKey != null) {
+            return selectMap(queryId, param, returnType, mapKey);
+        }
+        if (Flow.Publisher.class.equals(returnType)) {
+            return session.selectPublisher(queryId, param);
+        }
+        if (Stream.class.equals(returnType)) {
+            return session.selectStream(queryId, param);
+        }
+        if (Cursor.class.equals(returnType)) {
+            return session.selectCursor(queryId, param);
+        }
+        return Collection.class.isAssignableFrom(returnType) ?
                 session.selectList(queryId, param) :
                 session.selectOne(queryId, param);
     }
 
-    private Object invokeSelectFromCache(String queryId, String methodName, Object param, Class<?> resultType) throws Exception {
-        Cache<Object, Object> cache = caches.get(methodName);
+    private Object getParameter(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        for (Object arg : args) {
+            if (!(arg instanceof ResultHandler) && !(arg instanceof RowBounds)) {
+                return arg;
+            }
+        }
+        return null;
+    }
+
+    //the mapper method declares the handler's row type, which is also the type the query maps rows to
+    @SuppressWarnings("unchecked")
+    private ResultHandler<Object> getResultHandler(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        for (Object arg : args) {
+            if (arg instanceof ResultHandler<?> handler) {
+                return (ResultHandler<Object>) handler;
+            }
+        }
+        return null;
+    }
+
+    private RowBounds getRowBounds(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        for (Object arg : args) {
+            if (arg instanceof RowBounds rowBounds) {
+                return rowBounds;
+            }
+        }
+        return null;
+    }
+
+    private boolean isLazy(Class<?> returnType) {
+        return Stream.class.equals(returnType) || Cursor.class.equals(returnType) || Flow.Publisher.class.equals(returnType);
+    }
+
+    private Object selectMap(String queryId, Object param, Class<?> returnType, MapKey mapKey) throws Exception {
+        return LongKeyMap.class.equals(returnType) ?
+                session.selectLongMap(queryId, param, mapKey.value()) :
+                session.selectMap(queryId, param, mapKey.value());
+    }
+
+    private Object invokeSelectFromCache(String queryId, Method method, Object param, Class<?> returnType) throws Exception {
+        Cache<Object, Object> cache = caches.get(method.getName());
         Object res = cache.get(param);
 
         if (res != null) {
@@ -111,9 +284,14 @@ public class DaoHandler implements InvocationHandler {
             return res;
         }
 
-        res = resultType.equals(List.class) ?
-                session.selectList(queryId, param) :
-                session.selectOne(queryId, param);
+        MapKey mapKey = method.getAnnotation(MapKey.class);
+        if (mapKey != null) {
+            res = selectMap(queryId, param, returnType, mapKey);
+        } else {
+            res = Collection.class.isAssignableFrom(returnType) ?
+                    session.selectList(queryId, param) :
+                    session.selectOne(queryId, param);
+        }
         cache.set(param, res);
 
         return res;
@@ -3,19 +3,28 @@ package parsers;
 import annotations.*;
 import dto.Mapper;
 import dto.queries.DeleteQuery;
+import dto.queries.InsertQuery;
 import dto.queries.Query;
 import dto.queries.SelectQuery;
 import dto.queries.UpdateQuery;
+import session.Cursor;
+import session.ResultHandler;
+import session.RowBounds;
 import utility.FifoCache;
 import utility.GenerationalCache;
+import utility.LongKeyMap;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
 
 
 public class AnnotatedMapperParser {
@@ -63,49 +72,52 @@ public class AnnotatedMapperParser {
         Method[] methods = mapperType.getDeclaredMethods();
 
         for (Method method : methods) {
-            Annotation[] annotations = method.getDeclaredAnnotations();
-            Query query = getQueryItemByAnnotation(annotations, method);
+            Query query = getQueryItemByAnnotation(method);
+            //helper methods without a statement annotation are not statements
+            if (query == null) {
+                continue;
+            }
+            setStatementOptions(query, method.getAnnotation(Options.class));
             queryMap.put(query.getId(), query);
         }
     }
 
-    private Query getQueryItemByAnnotation(Annotation[] annotations, Method method) throws InvocationTargetException, InstantiationException, IllegalAccessException {
-        Class<?> annotationType = annotations[0].annotationType();
-        Parameter[] parameters = method.getParameters();
-        Class<?> paramType = parameters.length == 0 ? null: parameters[0].getType();
+    private Query getQueryItemByAnnotation(Method method) throws InvocationTargetException, InstantiationException, IllegalAccessException {
+        //statement annotations are looked up by type, @Options or @MapKey may be declared before them
+        Class<?> paramType = getParameterType(method);
         String id = method.getName();
 
-        if (annotationType.equals(Select.class)) {
-            return getSelectQuery(annotations[0], method, paramType, id);
+        Select select = method.getAnnotation(Select.class);
+        if (select != null) {
+            return getSelectQuery(select, method, paramType, id);
         }
 
-        Class<?> annotationType2 = annotations[1].annotationType();
         boolean useKeys = false;
         String keyProperty = null;
         boolean flushCache = false;
 
 
-        if (annotationType2.equals(Options.class)) {
-            Options options = (Options) annotations[1];
+        Options options = method.getAnnotation(Options.class);
+        if (options != null) {
             useKeys = options.useGeneratedKeys();
             keyProperty = options.keyProperty();
             flushCache = options.flushCache();
         }
 
-        if (annotationType.equals(Delete.class)) {
-            Delete delete = (Delete) annotations[0];
+        Delete delete = method.getAnnotation(Delete.class);
+        if (delete != null) {
             String sql = delete.value();
             return new DeleteQuery(Query.QUERY_TYPE.DELETE, id, int.class, sql, flushCache);
         }
 
-        if (annotationType.equals(Insert.class)) {
-            Insert insert = (Insert) annotations[0];
+        Insert insert = method.getAnnotation(Insert.class);
+        if (insert != null) {
             String sql = insert.value();
-            return new UpdateQuery(Query.QUERY_TYPE.INSERT, id, paramType, sql, useKeys, keyProperty, flushCache);
+            return new InsertQuery(Query.QUERY_TYPE.INSERT, id, paramType, sql, useKeys, keyProperty, flushCache);
         }
 
-        if (annotationType.equals(Update.class)) {
-            Update update = (Update) annotations[0];
+        Update update = method.getAnnotation(Update.class);
+        if (update != null) {
             String sql = update.value();
             return new UpdateQuery(Query.QUERY_TYPE.UPDATE, id, paramType, sql, useKeys, keyProperty, flushCache);
         }
@@ -113,15 +125,88 @@ public class AnnotatedMapperParser {
         return null;
     }
 
-    private SelectQuery getSelectQuery(Annotation annotation, Method method, Class<?> paramType, String id) throws InstantiationException, IllegalAccessException, InvocationTargetException {
-        Select select = (Select) annotation;
+    private void setStatementOptions(Query query, Options options) {
+        if (options == null) {
+            return;
+        }
+
+        if (options.fetchSize() >= 0) {
+            query.setFetchSize(options.fetchSize());
+        }
+        if (options.timeout() >= 0) {
+            query.setTimeout(options.timeout());
+        }
+        if (options.maxRows() >= 0) {
+            query.setMaxRows(options.maxRows());
+        }
+    }
+
+    private Class<?> getParameterType(Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (!ResultHandler.class.equals(parameterTypes[i]) && !RowBounds.class.equals(parameterTypes[i])) {
+                //collection and array parameters are mapped by their element type
+                return getElementType(parameterTypes[i], method.getGenericParameterTypes()[i]);
+            }
+        }
+        return null;
+    }
+
+    private Class<?> getResultType(Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (ResultHandler.class.equals(parameterTypes[i])
+                    && method.getGenericParameterTypes()[i] instanceof ParameterizedType parameterizedType
+                    && parameterizedType.getActualTypeArguments()[0] instanceof Class<?> handledType) {
+                return handledType;
+            }
+        }
+        Class<?> returnType = method.getReturnType();
+        Type genericReturnType = method.getGenericReturnType();
+        //async methods map rows by the type the future completes with
+        if (CompletableFuture.class.equals(returnType) && genericReturnType instanceof ParameterizedType futureType) {
+            genericReturnType = futureType.getActualTypeArguments()[0];
+            returnType = genericReturnType instanceof ParameterizedType parameterizedType ?
+                    (Class<?>) parameterizedType.getRawType() :
+                    genericReturnType instanceof Class<?> futureClass ? futureClass : Object.class;
+        }
+
+        //@MapKey selects map rows by the value type
+        if ((Map.class.isAssignableFrom(returnType) || LongKeyMap.class.equals(returnType))
+                && genericReturnType instanceof ParameterizedType parameterizedType) {
+            Type[] typeArguments = parameterizedType.getActualTypeArguments();
+            if (typeArguments[typeArguments.length - 1] instanceof Class<?> valueType) {
+                return valueType;
+            }
+        }
+        return getElementType(returnType, genericReturnType);
+    }
+
+    private Class<?> getElementType(Class<?> type, Type genericType) {
+        if (type.isArray()) {
+            return type.getComponentType();
+        }
+
+        boolean container = Collection.class.isAssignableFrom(type) || Stream.class.equals(type) || Cursor.class.equals(type)
+                || Flow.Publisher.class.equals(type);
+        if (container && genericType instanceof ParameterizedType parameterizedType) {
+            Type elementType = parameterizedType.getActualTypeArguments()[0];
+            if (elementType instanceof Class<?> elementClass) {
+                return elementClass;
+            }
+        }
+        return type;
+    }
+
+    private SelectQuery getSelectQuery(Select select, Method method, Class<?> paramType, String id) throws InstantiationException, IllegalAccessException, InvocationTargetException {
         String sql = select.value();
         boolean useCaching = select.useCaching();
         if (useCaching) {
+            @SuppressWarnings("unchecked")
             utility.Cache<Object, Object> cache = (utility.Cache<Object, Object>) cacheConstructor.newInstance(size, flushInterval);
             caches.put(method.getName(), cache);
         }
-        Class<?> resultType = method.getReturnType();
+        Class<?> resultType = getResultType(method);
         return new SelectQuery(Query.QUERY_TYPE.SELECT, id, paramType, sql, resultType, null, useCaching);
     }
 }
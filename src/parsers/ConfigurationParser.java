@@ -75,6 +75,7 @@ public class ConfigurationParser {
         Properties prop = new Properties();
         Map<String, Environment> environments = new HashMap<>();
         Environment defaultEnvironment = null;
+        Properties settings = new Properties();
 
         NodeList nodeList = configurationNode.getChildNodes();
         for (int i = 0; i < nodeList.getLength(); i++) {
@@ -88,13 +89,38 @@ public class ConfigurationParser {
             switch (nodeName) {
                 case "typeAliases" -> typeAliases = getTypeAliases(node);
                 case "properties" -> prop = getProperties(node);
+                case "settings" -> settings = getSettings(node);
                 case "environments" -> defaultEnvironment = setEnvironments(node, environments);
                 case "mappers" -> setMapperNames(node);
                 default -> throw new ParserConfigurationException(ILLEGAL_ELEMENT + nodeName);
             }
         }
 
-        return new Configuration(environments, defaultEnvironment, prop, typeAliases);
+        Configuration config = new Configuration(environments, defaultEnvironment, prop, typeAliases);
+        config.setSettings(settings);
+        return config;
+    }
+
+    private Properties getSettings(Node settingsNode) throws ParserConfigurationException {
+        Properties settings = new Properties();
+
+        NodeList nodeList = settingsNode.getChildNodes();
+        for (int i = 0; i < nodeList.getLength(); i++) {
+            Node node = nodeList.item(i);
+
+            if (node.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+
+            String nodeName = node.getNodeName();
+            if (!nodeName.equals("setting")) {
+                throw new ParserConfigurationException(ILLEGAL_ELEMENT + nodeName);
+            }
+
+            addProperty(node, settings);
+        }
+
+        return settings;
     }
 
     private void setMapperNames(Node root) throws ParserConfigurationException, ClassNotFoundException {
@@ -200,7 +226,7 @@ public class ConfigurationParser {
             String nodeName = node.getNodeName();
             switch (nodeName) {
                 case "transactionManager" -> transactionManagerType = getAttributeValue(node, "type");
-                case "dataSource" -> dataSource = getDataSource(node);
+                case "dataSource" -> dataSource = getDataSource(node, id);
                 default -> throw new ParserConfigurationException(ILLEGAL_ELEMENT + nodeName);
             }
         }
@@ -208,12 +234,14 @@ public class ConfigurationParser {
         return new Environment(id, transactionManagerType, dataSource);
     }
 
-    private DataSource getDataSource(Node dataSourceNode) throws Exception {
+    private DataSource getDataSource(Node dataSourceNode, String environmentId) throws Exception {
         String type = getAttributeValue(dataSourceNode, "type");
         Properties prop = parseProperties(dataSourceNode);
+        prop.putIfAbsent("poolName", environmentId);
         return switch (type) {
             case "POOLED" -> new PooledDataSource(prop);
             case "UNPOOLED" -> new UnpooledDataSource(prop);
+            case "ROUTING" -> new RoutingDataSource(prop);
             default -> throw new Exception("Invalid type");
         };
     }
@@ -260,6 +288,8 @@ public class ConfigurationParser {
             String property = matcher.group(1);
             Object p = this.properties.get(property);
             properties.put(name, p);
+        } else {
+            properties.put(name, value);
         }
     }
 
@@ -124,6 +124,7 @@ class MapperParser {
             SelectQuery selectQuery = (SelectQuery) query;
             boolean useCache = selectQuery.isUseCaching();
             if (useCache) {
+                @SuppressWarnings("unchecked")
                 utility.Cache<Object, Object> cache = (utility.Cache<Object, Object>) cacheConstructor.newInstance(size, flushInterval);
                 caches.put(query.getId(), cache);
             }
@@ -136,7 +137,7 @@ class MapperParser {
         Query.QUERY_TYPE queryType = Query.QUERY_TYPE.valueOf(type.toUpperCase());
 
         return switch (queryType) {
-            case INSERT, UPDATE -> getInsertUpdateQuery(queryNode);
+            case INSERT, UPDATE -> getInsertUpdateQuery(queryNode, queryType);
             case SELECT -> getSelectQuery(queryNode);
             case DELETE -> getQuery(queryNode, queryType);
         };
@@ -146,6 +147,7 @@ class MapperParser {
         String id = null;
         Class<?> paramType = null;
         boolean flushCache = false;
+        Integer timeout = null;
 
         NamedNodeMap attributes = queryNode.getAttributes();
         for (int i = 0; i < attributes.getLength(); i++) {
@@ -158,21 +160,25 @@ class MapperParser {
                     String flush = getAttribute(attribute, "flushCache");
                     flushCache = Boolean.parseBoolean(flush);
                 }
+                case "timeout" -> timeout = getIntAttribute(attribute, "timeout");
                 default -> throw new ParserConfigurationException(ILLEGAL_ATTRIBUTE + attributeName);
             }
         }
 
         String sql = queryNode.getTextContent();
 
-        return new DeleteQuery(queryType, id, paramType, sql, flushCache);
+        Query query = new DeleteQuery(queryType, id, paramType, sql, flushCache);
+        query.setTimeout(timeout);
+        return query;
     }
 
-    private static Query getInsertUpdateQuery(Node queryNode) throws Exception {
+    private static Query getInsertUpdateQuery(Node queryNode, Query.QUERY_TYPE queryType) throws Exception {
         String id = null;
         Class<?> paramType = null;
         boolean useGeneratedKeys = false;
         String keyProperty = null;
         boolean flushCache = false;
+        Integer timeout = null;
 
         NamedNodeMap attributes = queryNode.getAttributes();
         for (int i = 0; i < attributes.getLength(); i++) {
@@ -190,13 +196,18 @@ class MapperParser {
                     String flush = getAttribute(attribute, "flushCache");
                     flushCache = Boolean.parseBoolean(flush);
                 }
+                case "timeout" -> timeout = getIntAttribute(attribute, "timeout");
                 default -> throw new ParserConfigurationException(ILLEGAL_ATTRIBUTE + attributeName);
             }
         }
 
         String sql = queryNode.getTextContent();
 
-        return new InsertQuery(Query.QUERY_TYPE.INSERT, id, paramType, sql, useGeneratedKeys, keyProperty, flushCache);
+        Query query = queryType == Query.QUERY_TYPE.UPDATE ?
+                new UpdateQuery(queryType, id, paramType, sql, useGeneratedKeys, keyProperty, flushCache) :
+                new InsertQuery(queryType, id, paramType, sql, useGeneratedKeys, keyProperty, flushCache);
+        query.setTimeout(timeout);
+        return query;
     }
 
     private static Query getSelectQuery(Node queryNode) throws Exception {
@@ -205,6 +216,9 @@ class MapperParser {
         Class<?> resultType = null;
         String resultMapId = null;
         boolean useCaching = false;
+        Integer fetchSize = null;
+        Integer timeout = null;
+        Integer maxRows = null;
 
         NamedNodeMap attributes = queryNode.getAttributes();
         for (int i = 0; i < attributes.getLength(); i++) {
@@ -222,13 +236,20 @@ class MapperParser {
                     String caching = getAttribute(attribute, "useCaching");
                     useCaching = Boolean.parseBoolean(caching);
                 }
+                case "fetchSize" -> fetchSize = getIntAttribute(attribute, "fetchSize");
+                case "timeout" -> timeout = getIntAttribute(attribute, "timeout");
+                case "maxRows" -> maxRows = getIntAttribute(attribute, "maxRows");
                 default -> throw new ParserConfigurationException(ILLEGAL_ATTRIBUTE + attributeName);
             }
         }
 
         String sql = queryNode.getTextContent();
 
-        return new SelectQuery(Query.QUERY_TYPE.SELECT, id, paramType, sql, resultType, resultMapId, useCaching);
+        Query query = new SelectQuery(Query.QUERY_TYPE.SELECT, id, paramType, sql, resultType, resultMapId, useCaching);
+        query.setFetchSize(fetchSize);
+        query.setTimeout(timeout);
+        query.setMaxRows(maxRows);
+        return query;
     }
 
     private static final Map<String, Class<?>> WRAPPER_CLASSES = Map.of(
@@ -357,6 +378,19 @@ class MapperParser {
         return attrValue;
     }
 
+    private static Integer getIntAttribute(Node attribute, String attrName) throws ParserConfigurationException {
+        String attrValue = getAttribute(attribute, attrName);
+        try {
+            int value = Integer.parseInt(attrValue.trim());
+            if (value < 0) {
+                throw new ParserConfigurationException(attrName + " can not be negative");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new ParserConfigurationException(attrName + " must be an integer");
+        }
+    }
+
     private static Class<?> getClassByAttribute(Node attribute, String attrName) throws ParserConfigurationException, ClassNotFoundException {
         String className = getAttribute(attribute, attrName);
         return getClassByName(className);
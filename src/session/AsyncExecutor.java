@@ -0,0 +1,103 @@
+package session;
+
+import java.util.concurrent.*;
+
+class AsyncExecutor {
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final ConcurrentLinkedQueue<Task<?>> pending;
+
+    AsyncExecutor(ExecutorService executor, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("asyncMaxInFlight must be at least 1");
+        }
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+        this.pending = new ConcurrentLinkedQueue<>();
+    }
+
+    <T> CompletableFuture<T> submit(Callable<T> action) {
+        Task<T> task = new Task<>(action);
+        pending.add(task);
+        dispatch();
+        return task.future;
+    }
+
+    //a task only reaches the executor holding a permit, so no more than maxInFlight threads ever run statements
+    private void dispatch() {
+        Task<?> task;
+        while ((task = claim()) != null) {
+            Task<?> first = task;
+            try {
+                executor.execute(() -> drain(first));
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                first.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private Task<?> claim() {
+        while (!pending.isEmpty() && permits.tryAcquire()) {
+            Task<?> task = pending.poll();
+            if (task != null) {
+                return task;
+            }
+            permits.release();
+        }
+        return null;
+    }
+
+    //a worker keeps its permit while tasks are queued instead of handing each one to a fresh thread
+    private void drain(Task<?> task) {
+        while (task != null) {
+            task.run();
+            task = pending.poll();
+            if (task == null) {
+                permits.release();
+                //a task queued between the poll and the release would otherwise wait for the next submit
+                task = claim();
+            }
+        }
+    }
+
+    int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static final class Task<T> {
+        private final Callable<T> action;
+        private final CompletableFuture<T> future;
+
+        Task(Callable<T> action) {
+            this.action = action;
+            this.future = new CompletableFuture<>();
+        }
+
+        void run() {
+            if (future.isDone()) {
+                return;
+            }
+
+            try {
+                future.complete(action.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+}
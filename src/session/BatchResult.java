@@ -0,0 +1,41 @@
+package session;
+
+import dto.queries.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchResult {
+    private final Query query;
+    private final List<Object> parameterObjects;
+    private int[] updateCounts;
+
+    BatchResult(Query query) {
+        this.query = query;
+        this.parameterObjects = new ArrayList<>();
+    }
+
+    void addParameterObject(Object parameterObject) {
+        parameterObjects.add(parameterObject);
+    }
+
+    void setUpdateCounts(int[] updateCounts) {
+        this.updateCounts = updateCounts;
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    public String getSql() {
+        return query.getSql();
+    }
+
+    public List<Object> getParameterObjects() {
+        return parameterObjects;
+    }
+
+    public int[] getUpdateCounts() {
+        return updateCounts;
+    }
+}
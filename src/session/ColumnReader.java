@@ -0,0 +1,85 @@
+package session;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import exceptions.IbatisException;
+
+//column reads shared by the reflective and the generated row mappers, so both convert and reject NULLs the same way
+final class ColumnReader {
+    private ColumnReader() {
+    }
+
+    static Object read(ResultSet rs, int column, Class<?> type) throws SQLException {
+        if (type == int.class) {
+            return getInt(rs, column);
+        } else if (type == long.class) {
+            return getLong(rs, column);
+        } else if (type == short.class) {
+            return getShort(rs, column);
+        } else if (type == byte.class) {
+            return getByte(rs, column);
+        } else if (type == boolean.class) {
+            return getBoolean(rs, column);
+        } else if (type == double.class) {
+            return getDouble(rs, column);
+        } else if (type == float.class) {
+            return getFloat(rs, column);
+        } else if (type == String.class) {
+            return rs.getString(column);
+        } else if (type == BigDecimal.class) {
+            return rs.getBigDecimal(column);
+        }
+        return rs.getObject(column);
+    }
+
+    static int getInt(ResultSet rs, int column) throws SQLException {
+        int value = rs.getInt(column);
+        checkNotNull(rs, column);
+        return value;
+    }
+
+    static long getLong(ResultSet rs, int column) throws SQLException {
+        long value = rs.getLong(column);
+        checkNotNull(rs, column);
+        return value;
+    }
+
+    static short getShort(ResultSet rs, int column) throws SQLException {
+        short value = rs.getShort(column);
+        checkNotNull(rs, column);
+        return value;
+    }
+
+    static byte getByte(ResultSet rs, int column) throws SQLException {
+        byte value = rs.getByte(column);
+        checkNotNull(rs, column);
+        return value;
+    }
+
+    static boolean getBoolean(ResultSet rs, int column) throws SQLException {
+        boolean value = rs.getBoolean(column);
+        checkNotNull(rs, column);
+        return value;
+    }
+
+    static double getDouble(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        checkNotNull(rs, column);
+        return value;
+    }
+
+    static float getFloat(ResultSet rs, int column) throws SQLException {
+        float value = rs.getFloat(column);
+        checkNotNull(rs, column);
+        return value;
+    }
+
+    //a primitive can not hold NULL, reading it as 0 would silently turn missing values into real ones
+    private static void checkNotNull(ResultSet rs, int column) throws SQLException {
+        if (rs.wasNull()) {
+            throw new IbatisException("Column " + rs.getMetaData().getColumnLabel(column) + " is NULL but is mapped to a primitive");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package session;
+
+import java.lang.reflect.Constructor;
+import java.sql.ResultSet;
+
+import utility.PropertyAccessor;
+
+class CompiledRowMapper<T> implements RowMapper<T> {
+    private final Constructor<?> constructor;
+    private final PropertyAccessor[] fields;
+    private final RowMapper<T> generated;
+
+    CompiledRowMapper(Constructor<?> constructor, PropertyAccessor[] fields, RowMapper<T> generated) {
+        this.constructor = constructor;
+        this.fields = fields;
+        this.generated = generated;
+    }
+
+    //the constructor belongs to the result type the mapper was compiled for
+    @SuppressWarnings("unchecked")
+    @Override
+    public T map(ResultSet rs) throws Exception {
+        if (generated != null) {
+            return generated.map(rs);
+        }
+        return fill(rs, (T) constructor.newInstance());
+    }
+
+    //columns were matched to fields when the plan was compiled, rows are only read by index
+    @Override
+    public T fill(ResultSet rs, T o) throws Exception {
+        if (generated != null) {
+            return generated.fill(rs, o);
+        }
+        for (int i = 0; i < fields.length; i++) {
+            fields[i].set(o, ColumnReader.read(rs, i + 1, fields[i].getType()));
+        }
+        return o;
+    }
+
+    int getColumnCount() {
+        return fields.length;
+    }
+
+    boolean isGenerated() {
+        return generated != null;
+    }
+}
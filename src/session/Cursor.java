@@ -0,0 +1,23 @@
+package session;
+
+import java.io.Closeable;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public interface Cursor<T> extends Closeable, Iterable<T> {
+    boolean isOpen();
+
+    boolean isConsumed();
+
+    int getCurrentIndex();
+
+    @Override
+    void close();
+
+    default Stream<T> stream() {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+}
@@ -0,0 +1,138 @@
+package session;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class CursorPublisher<T> implements Flow.Publisher<T> {
+    private final AsyncExecutor executor;
+    private final Callable<Cursor<T>> opener;
+
+    CursorPublisher(AsyncExecutor executor, Callable<Cursor<T>> opener) {
+        this.executor = executor;
+        this.opener = opener;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        CursorSubscription subscription = new CursorSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private class CursorSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private Cursor<T> cursor;
+        private Iterator<T> iterator;
+        private boolean done;
+
+        CursorSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Subscriber requested " + n + " rows, demand must be positive");
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        //only one drain runs at a time, so the cursor is never touched by two threads at once,
+        //and it runs under an in-flight permit like any other asynchronous statement
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.submit(() -> {
+                    drain();
+                    return null;
+                }).whenComplete((ignored, e) -> {
+                    if (e instanceof RejectedExecutionException) {
+                        cancelled = true;
+                        wip.set(0);
+                        release();
+                        subscriber.onError(e);
+                    }
+                });
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                if (done) {
+                    return;
+                }
+                if (cancelled) {
+                    done = true;
+                    release();
+                    return;
+                }
+                if (invalidRequest != null) {
+                    fail(invalidRequest);
+                    return;
+                }
+
+                long requested = demand.get();
+                long emitted = 0;
+                try {
+                    if (requested > 0 && cursor == null) {
+                        //the connection is only borrowed once rows are actually wanted
+                        cursor = opener.call();
+                        iterator = cursor.iterator();
+                    }
+                    while (emitted != requested && !cancelled) {
+                        if (!iterator.hasNext()) {
+                            done = true;
+                            release();
+                            subscriber.onComplete();
+                            return;
+                        }
+                        subscriber.onNext(iterator.next());
+                        emitted++;
+                    }
+                } catch (Throwable t) {
+                    fail(t);
+                    return;
+                }
+
+                if (emitted != 0) {
+                    demand.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void fail(Throwable t) {
+            done = true;
+            release();
+            subscriber.onError(t);
+        }
+
+        private void release() {
+            if (cursor != null) {
+                cursor.close();
+                cursor = null;
+                iterator = null;
+            }
+        }
+    }
+}
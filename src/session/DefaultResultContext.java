@@ -0,0 +1,32 @@
+package session;
+
+class DefaultResultContext<T> implements ResultContext<T> {
+    private T resultObject;
+    private int resultCount;
+    private boolean stopped;
+
+    void nextResultObject(T resultObject) {
+        this.resultObject = resultObject;
+        this.resultCount++;
+    }
+
+    @Override
+    public T getResultObject() {
+        return resultObject;
+    }
+
+    @Override
+    public int getResultCount() {
+        return resultCount;
+    }
+
+    @Override
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    public void stop() {
+        this.stopped = true;
+    }
+}
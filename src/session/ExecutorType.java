@@ -0,0 +1,6 @@
+package session;
+
+public enum ExecutorType {
+    SIMPLE,
+    BATCH
+}
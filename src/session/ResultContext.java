@@ -0,0 +1,11 @@
+package session;
+
+public interface ResultContext<T> {
+    T getResultObject();
+
+    int getResultCount();
+
+    boolean isStopped();
+
+    void stop();
+}
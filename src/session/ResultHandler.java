@@ -0,0 +1,6 @@
+package session;
+
+@FunctionalInterface
+public interface ResultHandler<T> {
+    void handleResult(ResultContext<? extends T> resultContext);
+}
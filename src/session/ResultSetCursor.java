@@ -0,0 +1,116 @@
+package session;
+
+import exceptions.IbatisException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+class ResultSetCursor<T> implements Cursor<T> {
+    private final Statement statement;
+    private final ResultSet rs;
+    private final RowMapper<T> rowMapper;
+    private final Runnable onClose;
+    private boolean open = true;
+    private boolean consumed;
+    private boolean iteratorRetrieved;
+    private int currentIndex = -1;
+
+    ResultSetCursor(Statement statement, ResultSet rs, RowMapper<T> rowMapper, Runnable onClose) {
+        this.statement = statement;
+        this.rs = rs;
+        this.rowMapper = rowMapper;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public boolean isConsumed() {
+        return consumed;
+    }
+
+    @Override
+    public int getCurrentIndex() {
+        return currentIndex;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        if (iteratorRetrieved) {
+            throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+        }
+        if (!open) {
+            throw new IllegalStateException("A Cursor is already closed.");
+        }
+        iteratorRetrieved = true;
+        return new CursorIterator();
+    }
+
+    private T fetchNext() {
+        if (!open) {
+            return null;
+        }
+
+        try {
+            if (!rs.next()) {
+                consumed = true;
+                close();
+                return null;
+            }
+            currentIndex++;
+            return rowMapper.map(rs);
+        } catch (Exception e) {
+            close();
+            throw new IbatisException("Error fetching next row from cursor", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+
+        //each close runs even when the one before it failed, so neither the statement nor the connection leaks
+        try {
+            rs.close();
+        } catch (SQLException ignored) {
+        } finally {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            } finally {
+                onClose.run();
+            }
+        }
+    }
+
+    private class CursorIterator implements Iterator<T> {
+        private T next;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = fetchNext();
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = next;
+            next = null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package session;
+
+public class RowBounds {
+    public static final int NO_ROW_OFFSET = 0;
+    public static final int NO_ROW_LIMIT = Integer.MAX_VALUE;
+    public static final RowBounds DEFAULT = new RowBounds();
+
+    private final int offset;
+    private final int limit;
+    private final boolean keyset;
+    private final String keyColumn;
+    private final Object lastKey;
+    private final boolean descending;
+
+    public RowBounds() {
+        this(NO_ROW_OFFSET, NO_ROW_LIMIT);
+    }
+
+    public RowBounds(int offset, int limit) {
+        this(offset, limit, false, null, null, false);
+    }
+
+    private RowBounds(int offset, int limit, boolean keyset, String keyColumn, Object lastKey, boolean descending) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset can not be negative");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        this.offset = offset;
+        this.limit = limit;
+        this.keyset = keyset;
+        this.keyColumn = keyColumn;
+        this.lastKey = lastKey;
+        this.descending = descending;
+    }
+
+    public static RowBounds keyset(Object lastKey, int limit) {
+        return new RowBounds(NO_ROW_OFFSET, limit, true, null, lastKey, false);
+    }
+
+    public static RowBounds keyset(String keyColumn, Object lastKey, int limit) {
+        return new RowBounds(NO_ROW_OFFSET, limit, true, keyColumn, lastKey, false);
+    }
+
+    public static RowBounds keysetDescending(String keyColumn, Object lastKey, int limit) {
+        return new RowBounds(NO_ROW_OFFSET, limit, true, keyColumn, lastKey, true);
+    }
+
+    public RowBounds after(Object lastKey) {
+        return new RowBounds(NO_ROW_OFFSET, limit, true, keyColumn, lastKey, descending);
+    }
+
+    //a keyset page only knows where the next one starts once its last row has been read
+    public RowBounds nextPage() {
+        if (keyset) {
+            throw new IllegalStateException("Keyset bounds have no next page without a key, use after(lastKey) with the last row's key");
+        }
+        return new RowBounds(offset + limit, limit);
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isKeyset() {
+        return keyset;
+    }
+
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public Object getLastKey() {
+        return lastKey;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+}
@@ -0,0 +1,9 @@
+package session;
+
+import java.sql.ResultSet;
+
+interface RowMapper<T> {
+    T map(ResultSet rs) throws Exception;
+
+    T fill(ResultSet rs, T o) throws Exception;
+}
@@ -0,0 +1,55 @@
+package session;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+//row mappers of one query keyed by result set shape, the least recently used shape is dropped once the query outgrows the cache
+final class RowMapperCache {
+    static final int DEFAULT_CAPACITY = 16;
+
+    private final LinkedHashMap<String, CompiledRowMapper<?>> rowMappers;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    RowMapperCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    RowMapperCache(int capacity) {
+        this.rowMappers = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledRowMapper<?>> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    CompiledRowMapper<?> get(String signature) {
+        lock.lock();
+        try {
+            return rowMappers.get(signature);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //a mapper compiled concurrently for the same shape loses to the one already cached
+    CompiledRowMapper<?> putIfAbsent(String signature, CompiledRowMapper<?> rowMapper) {
+        lock.lock();
+        try {
+            CompiledRowMapper<?> existing = rowMappers.putIfAbsent(signature, rowMapper);
+            return existing != null ? existing : rowMapper;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return rowMappers.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
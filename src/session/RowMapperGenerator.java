@@ -0,0 +1,339 @@
+package session;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import utility.PropertyAccessor;
+
+//writes a RowMapper class that reads typed columns by index and stores them straight into the result object
+final class RowMapperGenerator {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final String CLASS_NAME = "session/GeneratedRowMapper";
+    private static final String RESULT_SET = "java/sql/ResultSet";
+    private static final String COLUMN_READER = "session/ColumnReader";
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ASTORE_2 = 0x4d;
+    private static final int DUP = 0x59;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int NEW = 0xbb;
+    private static final int CHECKCAST = 0xc0;
+
+    private RowMapperGenerator() {
+    }
+
+    //returns null when the result type can not be populated without reflection, the caller keeps the reflective mapper then
+    static <T> RowMapper<T> generate(Class<?> resultType, PropertyAccessor[] accessors) {
+        try {
+            if (!isAccessible(resultType) || Modifier.isAbstract(resultType.getModifiers()) || accessors.length > Short.MAX_VALUE) {
+                return null;
+            }
+            resultType.getConstructor();
+
+            Member[] targets = new Member[accessors.length];
+            for (int i = 0; i < accessors.length; i++) {
+                targets[i] = findTarget(resultType, accessors[i]);
+                if (targets[i] == null) {
+                    return null;
+                }
+            }
+
+            byte[] bytes = new ClassWriter(resultType, targets).toByteArray();
+            Class<?> mapperClass = LOOKUP.defineHiddenClass(bytes, true).lookupClass();
+            //the generated class maps rows to resultType, which the caller compiles the mapper for as T
+            @SuppressWarnings("unchecked")
+            RowMapper<T> rowMapper = (RowMapper<T>) mapperClass.getConstructor().newInstance();
+            return rowMapper;
+        } catch (ReflectiveOperationException | IOException | LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    //a public void setter is preferred, otherwise the field itself has to be public and writable
+    private static Member findTarget(Class<?> resultType, PropertyAccessor accessor) throws NoSuchFieldException {
+        Field field = resultType.getDeclaredField(accessor.getName());
+        if (!isAccessible(field.getType())) {
+            return null;
+        }
+
+        String name = accessor.getName();
+        String setterName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        try {
+            Method setter = resultType.getDeclaredMethod(setterName, field.getType());
+            if (setter.getReturnType() == void.class && Modifier.isPublic(setter.getModifiers()) && !Modifier.isStatic(setter.getModifiers())) {
+                return setter;
+            }
+        } catch (NoSuchMethodException ignored) {
+            //fall through to the field
+        }
+
+        int modifiers = field.getModifiers();
+        return Modifier.isPublic(modifiers) && !Modifier.isFinal(modifiers) && !Modifier.isStatic(modifiers) ? field : null;
+    }
+
+    //the generated class links against session's class loader, so every type it names must resolve to the same class there
+    private static boolean isAccessible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(type.getName(), false, RowMapperGenerator.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+    private static class ClassWriter {
+        private final ByteArrayOutputStream constantPoolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream constantPool = new DataOutputStream(constantPoolBytes);
+        private final Map<String, Integer> constants = new HashMap<>();
+        private int constantCount = 1;
+
+        private final Class<?> resultType;
+        private final Member[] targets;
+
+        ClassWriter(Class<?> resultType, Member[] targets) {
+            this.resultType = resultType;
+            this.targets = targets;
+        }
+
+        byte[] toByteArray() throws IOException {
+            int thisClass = classConstant(CLASS_NAME);
+            int superClass = classConstant("java/lang/Object");
+            int rowMapper = classConstant(internalName(RowMapper.class));
+
+            byte[] init = initCode();
+            byte[] map = mapCode();
+            byte[] fill = fillCode();
+
+            ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+            DataOutputStream methods = new DataOutputStream(methodBytes);
+            writeMethod(methods, "<init>", "()V", 1, 1, init);
+            writeMethod(methods, "map", "(L" + RESULT_SET + ";)Ljava/lang/Object;", 4, 3, map);
+            writeMethod(methods, "fill", "(L" + RESULT_SET + ";Ljava/lang/Object;)Ljava/lang/Object;", 4, 3, fill);
+
+            ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(classBytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(61);
+            out.writeShort(constantCount);
+            constantPoolBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(rowMapper);
+            out.writeShort(0);
+            out.writeShort(3);
+            methodBytes.writeTo(out);
+            out.writeShort(0);
+            return classBytes.toByteArray();
+        }
+
+        private void writeMethod(DataOutputStream out, String name, String descriptor, int maxStack, int maxLocals, byte[] code) throws IOException {
+            out.writeShort(ACC_PUBLIC);
+            out.writeShort(utf8Constant(name));
+            out.writeShort(utf8Constant(descriptor));
+            out.writeShort(1);
+            out.writeShort(utf8Constant("Code"));
+            out.writeInt(12 + code.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0);
+            out.writeShort(0);
+        }
+
+        private byte[] initCode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream code = new DataOutputStream(bytes);
+            code.writeByte(ALOAD_0);
+            code.writeByte(INVOKESPECIAL);
+            code.writeShort(memberConstant(10, "java/lang/Object", "<init>", "()V"));
+            code.writeByte(RETURN);
+            return bytes.toByteArray();
+        }
+
+        private byte[] mapCode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream code = new DataOutputStream(bytes);
+            code.writeByte(NEW);
+            code.writeShort(classConstant(internalName(resultType)));
+            code.writeByte(DUP);
+            code.writeByte(INVOKESPECIAL);
+            code.writeShort(memberConstant(10, internalName(resultType), "<init>", "()V"));
+            code.writeByte(ASTORE_2);
+            writeColumns(code);
+            code.writeByte(ALOAD_2);
+            code.writeByte(ARETURN);
+            return bytes.toByteArray();
+        }
+
+        private byte[] fillCode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream code = new DataOutputStream(bytes);
+            code.writeByte(ALOAD_2);
+            code.writeByte(CHECKCAST);
+            code.writeShort(classConstant(internalName(resultType)));
+            code.writeByte(ASTORE_2);
+            writeColumns(code);
+            code.writeByte(ALOAD_2);
+            code.writeByte(ARETURN);
+            return bytes.toByteArray();
+        }
+
+        //straight-line code only, so the class verifies without a StackMapTable
+        private void writeColumns(DataOutputStream code) throws IOException {
+            for (int i = 0; i < targets.length; i++) {
+                Class<?> type = targets[i] instanceof Field f ? f.getType() : ((Method) targets[i]).getParameterTypes()[0];
+                code.writeByte(ALOAD_2);
+                code.writeByte(ALOAD_1);
+                writeInt(code, i + 1);
+
+                //primitives go through ColumnReader, which rejects NULLs exactly like the reflective mapper does
+                String getter = getterName(type);
+                if (type.isPrimitive()) {
+                    code.writeByte(INVOKESTATIC);
+                    code.writeShort(memberConstant(10, COLUMN_READER, getter, "(L" + RESULT_SET + ";I)" + type.descriptorString()));
+                } else {
+                    String returnDescriptor = getter.equals("getObject") ? "Ljava/lang/Object;" : type.descriptorString();
+                    code.writeByte(INVOKEINTERFACE);
+                    code.writeShort(memberConstant(11, RESULT_SET, getter, "(I)" + returnDescriptor));
+                    code.writeByte(2);
+                    code.writeByte(0);
+                    if (getter.equals("getObject")) {
+                        code.writeByte(CHECKCAST);
+                        code.writeShort(classConstant(internalName(type)));
+                    }
+                }
+
+                if (targets[i] instanceof Field field) {
+                    code.writeByte(PUTFIELD);
+                    code.writeShort(memberConstant(9, internalName(resultType), field.getName(), type.descriptorString()));
+                } else {
+                    code.writeByte(INVOKEVIRTUAL);
+                    code.writeShort(memberConstant(10, internalName(resultType), ((Method) targets[i]).getName(), "(" + type.descriptorString() + ")V"));
+                }
+            }
+        }
+
+        private static String getterName(Class<?> type) {
+            if (type == int.class) {
+                return "getInt";
+            } else if (type == long.class) {
+                return "getLong";
+            } else if (type == short.class) {
+                return "getShort";
+            } else if (type == byte.class) {
+                return "getByte";
+            } else if (type == boolean.class) {
+                return "getBoolean";
+            } else if (type == double.class) {
+                return "getDouble";
+            } else if (type == float.class) {
+                return "getFloat";
+            } else if (type == String.class) {
+                return "getString";
+            } else if (type == BigDecimal.class) {
+                return "getBigDecimal";
+            } else if (type.isPrimitive()) {
+                throw new IllegalArgumentException("No typed getter for " + type);
+            }
+            return "getObject";
+        }
+
+        private static void writeInt(DataOutputStream code, int value) throws IOException {
+            if (value <= 5) {
+                code.writeByte(ICONST_0 + value);
+            } else if (value <= Byte.MAX_VALUE) {
+                code.writeByte(BIPUSH);
+                code.writeByte(value);
+            } else {
+                code.writeByte(SIPUSH);
+                code.writeShort(value);
+            }
+        }
+
+        private int utf8Constant(String value) throws IOException {
+            Integer index = constants.get("U" + value);
+            if (index == null) {
+                constantPool.writeByte(1);
+                constantPool.writeUTF(value);
+                index = constantCount++;
+                constants.put("U" + value, index);
+            }
+            return index;
+        }
+
+        private int classConstant(String internalName) throws IOException {
+            Integer index = constants.get("C" + internalName);
+            if (index == null) {
+                int name = utf8Constant(internalName);
+                constantPool.writeByte(7);
+                constantPool.writeShort(name);
+                index = constantCount++;
+                constants.put("C" + internalName, index);
+            }
+            return index;
+        }
+
+        //tag 9 is a field, 10 a class method and 11 an interface method
+        private int memberConstant(int tag, String owner, String name, String descriptor) throws IOException {
+            String key = tag + owner + "." + name + descriptor;
+            Integer index = constants.get(key);
+            if (index == null) {
+                int ownerClass = classConstant(owner);
+                int nameIndex = utf8Constant(name);
+                int descriptorIndex = utf8Constant(descriptor);
+                constantPool.writeByte(12);
+                constantPool.writeShort(nameIndex);
+                constantPool.writeShort(descriptorIndex);
+                int nameAndType = constantCount++;
+
+                constantPool.writeByte(tag);
+                constantPool.writeShort(ownerClass);
+                constantPool.writeShort(nameAndType);
+                index = constantCount++;
+                constants.put(key, index);
+            }
+            return index;
+        }
+    }
+}
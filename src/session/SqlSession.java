@@ -1,33 +1,333 @@
 package session;
 
 import dto.Configuration;
+import dto.ResultMap;
+import dto.data_source.DataSource;
+import dto.data_source.RoutingDataSource;
 import dto.queries.*;
 import exceptions.IbatisException;
 import exceptions.TooManyResultsException;
 import handlers.DaoHandler;
-import utility.DatabaseConnectionPool;
+import transaction.JdbcTransaction;
+import transaction.Transaction;
+import utility.ConnectionPriority;
+import utility.LongKeyMap;
+import utility.PropertyAccessor;
+import utility.StatementCache;
+import utility.VirtualThreads;
 
 import java.io.Closeable;
 import java.lang.reflect.*;
 import java.sql.*;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 public class SqlSession implements Closeable {
-    private final DatabaseConnectionPool dcp;
-    private final Connection conn;
+    public static final int BATCH_UPDATE_RETURN_VALUE = Integer.MIN_VALUE + 1002;
+    private static final int MAX_PARAMETERS = 65535;
+
+    private final DataSource dataSource;
+    private final Transaction transaction;
+    private final ConnectionPriority priority;
+    private final ExecutorType executorType;
     private final Configuration configuration;
+    private final ExecutorService executor;
+    private final AsyncExecutor asyncExecutor;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<BatchResult> batchResults = new ArrayList<>();
+    private final List<Cursor<?>> openCursors = new ArrayList<>();
+    private final Map<Statement, ScheduledFuture<?>> watchdogs = new ConcurrentHashMap<>();
+    private final Integer defaultFetchSize;
+    private final Integer defaultTimeout;
+    private final Integer defaultMaxRows;
+    private final int cursorFetchSize;
+    private final int insertChunkSize;
+    private final int batchFlushSize;
+    private Connection conn;
+    private long readYourWritesWindow;
+    private long lastWriteNanos;
+    private boolean written;
+    private boolean dirty;
+    private boolean closeWithLastCursor;
+    private volatile Instant deadline;
+    private PreparedStatement batchStatement;
+    private BatchResult batchResult;
+    private String batchKeyProperty;
 
-    SqlSession(Configuration configuration, Connection conn, DatabaseConnectionPool dcp) {
+    SqlSession(Configuration configuration, DataSource dataSource, Transaction transaction, ConnectionPriority priority, ExecutorType executorType, ExecutorService executor, AsyncExecutor asyncExecutor) {
         this.configuration = configuration;
-        this.conn = conn;
-        this.dcp = dcp;
+        this.dataSource = dataSource;
+        this.transaction = transaction;
+        this.priority = priority;
+        this.executorType = executorType;
+        this.executor = executor;
+        this.asyncExecutor = asyncExecutor;
+        this.defaultFetchSize = configuration.getDefaultFetchSize();
+        this.defaultTimeout = configuration.getDefaultStatementTimeout();
+        this.defaultMaxRows = configuration.getDefaultMaxRows();
+        this.cursorFetchSize = configuration.getCursorFetchSize();
+        this.insertChunkSize = configuration.getInsertChunkSize();
+        this.batchFlushSize = configuration.getBatchFlushSize();
+        if (dataSource instanceof RoutingDataSource routingDataSource) {
+            this.readYourWritesWindow = routingDataSource.getReadYourWritesWindow();
+        }
+    }
+
+    private Connection primary() throws Exception {
+        if (conn == null) {
+            Instant deadline = this.deadline;
+            conn = deadline == null ? transaction.getConnection() : transaction.getConnection(remainingMillis(deadline));
+        }
+        return conn;
+    }
+
+    private Connection acquireReadConnection() throws Exception {
+        flushBatch();
+        if (dataSource instanceof RoutingDataSource routingDataSource && !readsFromPrimary()) {
+            Instant deadline = this.deadline;
+            return deadline == null ?
+                    routingDataSource.getReadConnection(priority) :
+                    routingDataSource.getReadConnection(priority, remainingMillis(deadline));
+        }
+        return primary();
+    }
+
+    private boolean readsFromPrimary() {
+        if (!transaction.isAutoCommit()) {
+            return true;
+        }
+        return written && System.nanoTime() - lastWriteNanos < TimeUnit.MILLISECONDS.toNanos(readYourWritesWindow);
     }
 
-//    <K,V> Map<K,V> selectMap(String queryId, Object params, String mapId) throws Exception {
-//        SelectQuery selectQuery = (SelectQuery) configuration.getQueryById(queryId);
-//        checkQueryType(selectQuery, Query.QUERY_TYPE.SELECT);
-//        ResultMap resultMap = configuration.getResultMapById(mapId);
-//    }
+    private void releaseReadConnection(Connection connection) throws SQLException {
+        if (connection != conn) {
+            dataSource.releaseConnection(connection);
+        }
+    }
+
+    private PreparedStatement prepareStatement(Connection connection, Query query, String sql, int autoGeneratedKeys) throws SQLException {
+        StatementCache statementCache = dataSource.getStatementCache(connection);
+        PreparedStatement st = statementCache != null ?
+                statementCache.prepareStatement(sql, autoGeneratedKeys) :
+                connection.prepareStatement(sql, autoGeneratedKeys);
+        applyStatementSettings(st, query, defaultFetchSize);
+        return st;
+    }
+
+    private void applyStatementSettings(Statement st, Query query, Integer fallbackFetchSize) throws SQLException {
+        Integer timeout = query.getTimeout() != null ? query.getTimeout() : defaultTimeout;
+        Instant deadline = this.deadline;
+        if (deadline != null) {
+            long remaining = remainingMillis(deadline);
+            //query timeouts only have second granularity, the watchdog cancels at the exact deadline
+            int budget = (int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000);
+            timeout = timeout == null || timeout == 0 ? budget : Math.min(timeout, budget);
+            arm(st, remaining);
+        }
+        //cached statements keep their settings, so a timeout from an earlier deadline is always reset
+        st.setQueryTimeout(timeout != null ? timeout : 0);
+        if (query.getQueryType() != Query.QUERY_TYPE.SELECT) {
+            return;
+        }
+
+        //the statement cache is keyed by sql only, so unset limits go back to the driver defaults
+        Integer fetchSize = query.getFetchSize() != null ? query.getFetchSize() : fallbackFetchSize;
+        st.setFetchSize(fetchSize != null ? fetchSize : 0);
+        Integer maxRows = query.getMaxRows() != null ? query.getMaxRows() : defaultMaxRows;
+        st.setMaxRows(maxRows != null ? maxRows : 0);
+    }
+
+    private void closeStatement(Connection connection, PreparedStatement st) throws SQLException {
+        disarm(st);
+        //cached statements stay open with their pooled connection
+        if (st != null && dataSource.getStatementCache(connection) == null) {
+            st.close();
+        }
+    }
+
+    private void closeStreamingStatement(Statement st) throws SQLException {
+        if (st != null) {
+            disarm(st);
+            st.close();
+        }
+    }
+
+    private void arm(Statement st, long delayMillis) {
+        ScheduledFuture<?> previous = watchdogs.put(st, StatementWatchdog.arm(st, delayMillis));
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    private void disarm(Statement st) {
+        ScheduledFuture<?> watchdog = st == null ? null : watchdogs.remove(st);
+        if (watchdog != null) {
+            watchdog.cancel(false);
+        }
+    }
+
+    private static long remainingMillis(Instant deadline) throws SQLTimeoutException {
+        long remaining = Duration.between(Instant.now(), deadline).toMillis();
+        if (remaining <= 0) {
+            throw new SQLTimeoutException("Deadline " + deadline + " exceeded");
+        }
+        return remaining;
+    }
+
+    public SqlSession withDeadline(Instant deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    public SqlSession withTimeout(Duration timeout) {
+        return withDeadline(Instant.now().plus(timeout));
+    }
+
+    public <T> T withDeadline(Instant deadline, Callable<T> action) throws Exception {
+        Instant previous = this.deadline;
+        //a call can tighten the session deadline but never extend it
+        this.deadline = previous != null && previous.isBefore(deadline) ? previous : deadline;
+        try {
+            return action.call();
+        } finally {
+            this.deadline = previous;
+        }
+    }
+
+    public void clearDeadline() {
+        this.deadline = null;
+    }
+
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    private void markWrite() {
+        lastWriteNanos = System.nanoTime();
+        written = true;
+        dirty = true;
+    }
+
+    //with useVirtualThreads the blocking call moves to a virtual thread, callers that already are one run it directly
+    private <T> T execute(Callable<T> action) throws Exception {
+        if (executor == null || VirtualThreads.isVirtual(Thread.currentThread())) {
+            return executeLocked(action);
+        }
+
+        try {
+            return executor.submit(() -> executeLocked(action)).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw new IbatisException(cause);
+        }
+    }
+
+    private <T> T executeLocked(Callable<T> action) throws Exception {
+        lock.lock();
+        try {
+            return action.call();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> CompletableFuture<T> async(SessionCall<T> call) {
+        if (asyncExecutor == null) {
+            return CompletableFuture.failedFuture(new IbatisException("Asynchronous execution is not configured for this session"));
+        }
+
+        if (isBound()) {
+            return asyncExecutor.submit(() -> call.call(this));
+        }
+
+        //otherwise each statement borrows a connection only while it runs, so calls fan out in parallel
+        SqlSession session = newStatementSession();
+        return asyncExecutor.submit(() -> {
+            try (session) {
+                return call.call(session);
+            }
+        });
+    }
+
+    //a session inside a transaction or batch has to run statements on its own connection, in order
+    private boolean isBound() {
+        return executorType == ExecutorType.BATCH || !transaction.isAutoCommit();
+    }
+
+    private SqlSession newStatementSession() {
+        SqlSession session = new SqlSession(configuration, dataSource, new JdbcTransaction(dataSource, priority, true), priority, ExecutorType.SIMPLE, executor, null);
+        session.written = written;
+        session.lastWriteNanos = lastWriteNanos;
+        session.readYourWritesWindow = readYourWritesWindow;
+        session.deadline = deadline;
+        return session;
+    }
+
+    public <T> CompletableFuture<T> selectOneAsync(String queryId) {
+        return async(session -> session.selectOne(queryId));
+    }
+
+    public <T> CompletableFuture<T> selectOneAsync(String queryId, Object params) {
+        return async(session -> session.selectOne(queryId, params));
+    }
+
+    public <T> CompletableFuture<List<T>> selectListAsync(String queryId) {
+        return async(session -> session.selectList(queryId));
+    }
+
+    public <T> CompletableFuture<List<T>> selectListAsync(String queryId, Object params) {
+        return async(session -> session.selectList(queryId, params));
+    }
+
+    public <T> CompletableFuture<List<T>> selectListAsync(String queryId, Object params, RowBounds rowBounds) {
+        return async(session -> session.selectList(queryId, params, rowBounds));
+    }
+
+    public <K, V> CompletableFuture<Map<K, V>> selectMapAsync(String queryId, Object params, String keyProperty) {
+        return async(session -> session.selectMap(queryId, params, keyProperty));
+    }
+
+    public <V> CompletableFuture<LongKeyMap<V>> selectLongMapAsync(String queryId, Object params, String keyProperty) {
+        return async(session -> session.selectLongMap(queryId, params, keyProperty));
+    }
+
+    public CompletableFuture<Integer> insertAsync(String queryId) {
+        return async(session -> session.insert(queryId));
+    }
+
+    public CompletableFuture<Integer> insertAsync(String queryId, Object params) {
+        return async(session -> session.insert(queryId, params));
+    }
+
+    public CompletableFuture<Integer> updateAsync(String queryId) {
+        return async(session -> session.update(queryId));
+    }
+
+    public CompletableFuture<Integer> updateAsync(String queryId, Object params) {
+        return async(session -> session.update(queryId, params));
+    }
+
+    public CompletableFuture<Integer> deleteAsync(String queryId) {
+        return async(session -> session.delete(queryId));
+    }
+
+    public CompletableFuture<Integer> deleteAsync(String queryId, Object params) {
+        return async(session -> session.delete(queryId, params));
+    }
 
     public <T> T selectOne(String queryId) throws Exception {
         SelectQuery selectQuery = (SelectQuery) configuration.getQueryById(queryId);
@@ -36,19 +336,24 @@ public class SqlSession implements Closeable {
     }
 
     <T> T selectOne(SelectQuery selectQuery) throws Exception {
-        String sql = selectQuery.getSql();
-        Class<?> resultType = selectQuery.getResultType();
-        Map<String, Field> fieldsMap = selectQuery.getFieldsMap();
+        return execute(() -> {
+            String sql = selectQuery.getSql();
 
-        try (Statement st = conn.createStatement()) {
-            ResultSet rs = st.executeQuery(sql);
-            rs.next();
-            Constructor<?> constructor = resultType.getDeclaredConstructor();
-            T res = getObject(rs, constructor, fieldsMap);
-            manyResultsCheck(rs);
+            Connection connection = acquireReadConnection();
+            PreparedStatement st = null;
+            try {
+                st = prepareStatement(connection, selectQuery, sql, Statement.NO_GENERATED_KEYS);
+                try (ResultSet rs = st.executeQuery()) {
+                    T res = rs.next() ? this.<T>getRowMapper(selectQuery, rs).map(rs) : null;
+                    manyResultsCheck(rs);
 
-            return res;
-        }
+                    return res;
+                }
+            } finally {
+                closeStatement(connection, st);
+                releaseReadConnection(connection);
+            }
+        });
     }
 
     public <T> T selectOne(String queryId, Object params) throws Exception {
@@ -57,23 +362,28 @@ public class SqlSession implements Closeable {
         return selectOne(selectQuery, params);
     }
 
-     <T> T selectOne(SelectQuery selectQuery, Object params) throws Exception {
-        String sql = selectQuery.getSql();
-        List<String> paramNames = selectQuery.getParamNames();
-        Class<?> resultType = selectQuery.getResultType();
-        Map<String, Field> resultFieldsMap = selectQuery.getResultFieldsMap();
-        Map<String, Field> fieldsMap = selectQuery.getFieldsMap();
+    <T> T selectOne(SelectQuery selectQuery, Object params) throws Exception {
+        return execute(() -> {
+            String sql = selectQuery.getSql();
+            List<String> paramNames = selectQuery.getParamNames();
+            Map<String, PropertyAccessor> fieldsMap = selectQuery.getFieldsMap();
 
-        try (PreparedStatement st = conn.prepareStatement(sql)) {
-            setParameters(st, params, paramNames, fieldsMap);
-            ResultSet rs = st.executeQuery();
-            rs.next();
-            Constructor<?> constructor = resultType.getDeclaredConstructor();
-            T res = getObject(rs, constructor, resultFieldsMap);
-            manyResultsCheck(rs);
+            Connection connection = acquireReadConnection();
+            PreparedStatement st = null;
+            try {
+                st = prepareStatement(connection, selectQuery, sql, Statement.NO_GENERATED_KEYS);
+                setParameters(st, params, paramNames, fieldsMap);
+                try (ResultSet rs = st.executeQuery()) {
+                    T res = rs.next() ? this.<T>getRowMapper(selectQuery, rs).map(rs) : null;
+                    manyResultsCheck(rs);
 
-            return res;
-        }
+                    return res;
+                }
+            } finally {
+                closeStatement(connection, st);
+                releaseReadConnection(connection);
+            }
+        });
     }
 
     private void manyResultsCheck(ResultSet rs) throws SQLException {
@@ -91,15 +401,20 @@ public class SqlSession implements Closeable {
     }
 
     <T> List<T> selectList(SelectQuery selectQuery) throws Exception {
-        Class<?> resultType = selectQuery.getResultType();
-        String sql = selectQuery.getSql();
-        Map<String, Field> resultFieldsMap = selectQuery.getResultFieldsMap();
+        return execute(() -> {
+            String sql = selectQuery.getSql();
 
-        try (Statement st = conn.createStatement()) {
-            ResultSet rs = st.executeQuery(sql);
-            Constructor<?> constructor = resultType.getDeclaredConstructor();
-            return getObjectList(rs, constructor, resultFieldsMap);
-        }
+            Connection connection = acquireReadConnection();
+            PreparedStatement st = null;
+            try {
+                st = prepareStatement(connection, selectQuery, sql, Statement.NO_GENERATED_KEYS);
+                ResultSet rs = st.executeQuery();
+                return getObjectList(rs, getRowMapper(selectQuery, rs));
+            } finally {
+                closeStatement(connection, st);
+                releaseReadConnection(connection);
+            }
+        });
     }
 
     public <T> List<T> selectList(String queryId, Object params) throws Exception {
@@ -109,24 +424,202 @@ public class SqlSession implements Closeable {
     }
 
     <T> List<T> selectList(SelectQuery selectQuery, Object params) throws Exception {
-        String sql = selectQuery.getSql();
-        List<String> paramNames = selectQuery.getParamNames();
-        Class<?> resultType = selectQuery.getResultType();
-        Map<String, Field> resultFieldsMap = selectQuery.getResultFieldsMap();
-        Map<String, Field> fieldsMap = selectQuery.getFieldsMap();
+        return execute(() -> {
+            String sql = selectQuery.getSql();
+            List<String> paramNames = selectQuery.getParamNames();
+            Map<String, PropertyAccessor> fieldsMap = selectQuery.getFieldsMap();
+
+            Connection connection = acquireReadConnection();
+            PreparedStatement st = null;
+            try {
+                st = prepareStatement(connection, selectQuery, sql, Statement.NO_GENERATED_KEYS);
+                setParameters(st, params, paramNames, fieldsMap);
+                ResultSet rs = st.executeQuery();
+                return getObjectList(rs, getRowMapper(selectQuery, rs));
+            } finally {
+                closeStatement(connection, st);
+                releaseReadConnection(connection);
+            }
+        });
+    }
+
+    public <T> List<T> selectList(String queryId, Object params, RowBounds rowBounds) throws Exception {
+        SelectQuery selectQuery = (SelectQuery) configuration.getQueryById(queryId);
+        checkQueryType(selectQuery, Query.QUERY_TYPE.SELECT);
+        return selectList(selectQuery, params, rowBounds);
+    }
+
+    <T> List<T> selectList(SelectQuery selectQuery, Object params, RowBounds rowBounds) throws Exception {
+        if (rowBounds == null || rowBounds == RowBounds.DEFAULT) {
+            return selectList(selectQuery, params);
+        }
+
+        return execute(() -> {
+            String keyColumn = rowBounds.isKeyset() ? getKeyColumn(selectQuery, rowBounds) : null;
+            String sql = getPagedSql(selectQuery.getSql(), rowBounds, keyColumn);
+            List<String> paramNames = selectQuery.getParamNames();
+            Map<String, PropertyAccessor> fieldsMap = selectQuery.getFieldsMap();
+
+            Connection connection = acquireReadConnection();
+            PreparedStatement st = null;
+            try {
+                //the bounds are bound as parameters so every page reuses the same cached statement
+                st = prepareStatement(connection, selectQuery, sql, Statement.NO_GENERATED_KEYS);
+                int index = paramNames.isEmpty() ? 1 : setParameters(st, 1, params, paramNames, fieldsMap);
+                if (keyColumn == null) {
+                    st.setInt(index++, rowBounds.getLimit());
+                    st.setInt(index, rowBounds.getOffset());
+                } else {
+                    if (rowBounds.getLastKey() != null) {
+                        st.setObject(index++, rowBounds.getLastKey());
+                    }
+                    st.setInt(index, rowBounds.getLimit());
+                }
+                ResultSet rs = st.executeQuery();
+                return getObjectList(rs, getRowMapper(selectQuery, rs));
+            } finally {
+                closeStatement(connection, st);
+                releaseReadConnection(connection);
+            }
+        });
+    }
+
+    private String getKeyColumn(SelectQuery selectQuery, RowBounds rowBounds) {
+        String keyColumn = rowBounds.getKeyColumn();
+        if (keyColumn == null && selectQuery.getResultMapId() != null) {
+            ResultMap resultMap = configuration.getResultMapById(selectQuery.getResultMapId());
+            if (resultMap != null && resultMap.getResultId() != null) {
+                keyColumn = resultMap.getResultId().getColumn();
+            }
+        }
+
+        if (keyColumn == null) {
+            throw new IbatisException("Keyset paging of query " + selectQuery.getId() + " requires a result map with an <id> or an explicit key column");
+        }
+        if (!keyColumn.matches("([A-Za-z_][A-Za-z0-9_]*\\.)?[A-Za-z_][A-Za-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid key column: " + keyColumn);
+        }
+        //the wrapped query only exposes the bare column name, so a table qualifier such as e.id is dropped
+        return keyColumn.substring(keyColumn.indexOf('.') + 1);
+    }
+
+    private String getPagedSql(String sql, RowBounds rowBounds, String keyColumn) {
+        String base = sql.strip();
+        while (base.endsWith(";")) {
+            base = base.substring(0, base.length() - 1).stripTrailing();
+        }
+
+        if (keyColumn == null) {
+            return base + " LIMIT ? OFFSET ?";
+        }
+
+        //wrap the query so the seek predicate and ordering apply regardless of its own WHERE/ORDER BY clauses
+        String direction = rowBounds.isDescending() ? " DESC" : "";
+        String seek = rowBounds.getLastKey() == null ? "" : " WHERE " + keyColumn + (rowBounds.isDescending() ? " < ?" : " > ?");
+        return "SELECT * FROM (" + base + ") keyset_page" + seek + " ORDER BY " + keyColumn + direction + " LIMIT ?";
+    }
+
+    public <K, V> Map<K, V> selectMap(String queryId, String keyProperty) throws Exception {
+        return selectMap(queryId, null, keyProperty);
+    }
+
+    public <K, V> Map<K, V> selectMap(String queryId, Object params, String keyProperty) throws Exception {
+        SelectQuery selectQuery = (SelectQuery) configuration.getQueryById(queryId);
+        checkQueryType(selectQuery, Query.QUERY_TYPE.SELECT);
+        return selectMap(selectQuery, params, keyProperty);
+    }
+
+    //rows are mapped untyped, the caller picks the key and value types
+    @SuppressWarnings("unchecked")
+    <K, V> Map<K, V> selectMap(SelectQuery selectQuery, Object params, String keyProperty) throws Exception {
+        PropertyAccessor keyField = getKeyField(selectQuery, keyProperty);
+        int expectedRows = getExpectedRows(selectQuery);
+        //sized up front so the index is never rehashed while rows stream in
+        Map<K, V> result = expectedRows > 0 ? new HashMap<>((int) (expectedRows / 0.75f) + 1) : new HashMap<>();
+        forEachRow(selectQuery, params, row -> result.put((K) keyField.get(row), (V) row));
+        return result;
+    }
+
+    public <V> LongKeyMap<V> selectLongMap(String queryId, String keyProperty) throws Exception {
+        return selectLongMap(queryId, null, keyProperty);
+    }
+
+    public <V> LongKeyMap<V> selectLongMap(String queryId, Object params, String keyProperty) throws Exception {
+        SelectQuery selectQuery = (SelectQuery) configuration.getQueryById(queryId);
+        checkQueryType(selectQuery, Query.QUERY_TYPE.SELECT);
+        return selectLongMap(selectQuery, params, keyProperty);
+    }
+
+    //rows are mapped untyped, the caller picks the key and value types
+    @SuppressWarnings("unchecked")
+    <V> LongKeyMap<V> selectLongMap(SelectQuery selectQuery, Object params, String keyProperty) throws Exception {
+        PropertyAccessor keyField = getKeyField(selectQuery, keyProperty);
+        Class<?> keyType = keyField.getType();
+        if (keyType != int.class && keyType != long.class && keyType != Integer.class && keyType != Long.class
+                && keyType != short.class && keyType != Short.class) {
+            throw new IbatisException("Key property " + keyProperty + " of query " + selectQuery.getId() + " is not an integral number");
+        }
+
+        LongKeyMap<V> result = new LongKeyMap<>(Math.max(getExpectedRows(selectQuery), 0));
+        forEachRow(selectQuery, params, row -> {
+            Object key = keyField.get(row);
+            if (key == null) {
+                throw new IbatisException("Null key property " + keyProperty + " in query " + selectQuery.getId());
+            }
+            result.put(((Number) key).longValue(), (V) row);
+        });
+        return result;
+    }
+
+    private PropertyAccessor getKeyField(SelectQuery selectQuery, String keyProperty) {
+        Map<String, PropertyAccessor> resultFieldsMap = selectQuery.getResultFieldsMap();
+        PropertyAccessor keyField = resultFieldsMap == null ? null : resultFieldsMap.get(getNormalizedFieldName(keyProperty));
+        if (keyField == null) {
+            throw new IbatisException("Unknown key property " + keyProperty + " for query " + selectQuery.getId());
+        }
+        return keyField;
+    }
 
-        try (PreparedStatement st = conn.prepareStatement(sql)) {
-            setParameters(st, params, paramNames, fieldsMap);
-            ResultSet rs = st.executeQuery();
-            Constructor<?> constructor = resultType.getDeclaredConstructor();
-            return getObjectList(rs, constructor, resultFieldsMap);
+    private int getExpectedRows(SelectQuery selectQuery) {
+        Integer maxRows = selectQuery.getMaxRows() != null ? selectQuery.getMaxRows() : defaultMaxRows;
+        if (maxRows != null && maxRows > 0) {
+            return maxRows;
         }
+        Integer fetchSize = selectQuery.getFetchSize() != null ? selectQuery.getFetchSize() : defaultFetchSize;
+        return fetchSize != null ? fetchSize : 0;
     }
 
-    private <T> List<T> getObjectList(ResultSet rs, Constructor<?> constructor, Map<String, Field> fieldsMap) throws Exception {
+    private void forEachRow(SelectQuery selectQuery, Object params, RowConsumer consumer) throws Exception {
+        execute(() -> {
+            String sql = selectQuery.getSql();
+            List<String> paramNames = selectQuery.getParamNames();
+            Map<String, PropertyAccessor> fieldsMap = selectQuery.getFieldsMap();
+
+            Connection connection = acquireReadConnection();
+            PreparedStatement st = null;
+            try {
+                st = prepareStatement(connection, selectQuery, sql, Statement.NO_GENERATED_KEYS);
+                if (!paramNames.isEmpty()) {
+                    setParameters(st, params, paramNames, fieldsMap);
+                }
+                try (ResultSet rs = st.executeQuery()) {
+                    CompiledRowMapper<Object> rowMapper = getRowMapper(selectQuery, rs);
+                    while (rs.next()) {
+                        consumer.accept(rowMapper.map(rs));
+                    }
+                }
+                return null;
+            } finally {
+                closeStatement(connection, st);
+                releaseReadConnection(connection);
+            }
+        });
+    }
+
+    private <T> List<T> getObjectList(ResultSet rs, RowMapper<T> rowMapper) throws Exception {
         List<T> result = new ArrayList<>();
         while (rs.next()) {
-            T object = getObject(rs, constructor, fieldsMap);
+            T object = rowMapper.map(rs);
             result.add(object);
         }
         rs.close();
@@ -134,6 +627,157 @@ public class SqlSession implements Closeable {
         return result;
     }
 
+    public <T> Cursor<T> selectCursor(String queryId) throws Exception {
+        return selectCursor(queryId, null);
+    }
+
+    public <T> Cursor<T> selectCursor(String queryId, Object params) throws Exception {
+        SelectQuery selectQuery = (SelectQuery) configuration.getQueryById(queryId);
+        checkQueryType(selectQuery, Query.QUERY_TYPE.SELECT);
+        return selectCursor(selectQuery, params);
+    }
+
+    <T> Cursor<T> selectCursor(SelectQuery selectQuery, Object params) throws Exception {
+        return execute(() -> {
+            Connection connection = acquireReadConnection();
+            PreparedStatement st = null;
+            try {
+                st = prepareStreamingStatement(connection, selectQuery, params);
+                ResultSet rs = st.executeQuery();
+                PreparedStatement statement = st;
+                Cursor<T> cursor = new ResultSetCursor<>(st, rs, getRowMapper(selectQuery, rs), () -> {
+                    disarm(statement);
+                    cursorClosed(connection);
+                });
+                openCursors.add(cursor);
+                return cursor;
+            } catch (Exception e) {
+                closeStreamingStatement(st);
+                releaseReadConnection(connection);
+                throw e;
+            }
+        });
+    }
+
+    public <T> Flow.Publisher<T> selectPublisher(String queryId) throws Exception {
+        return selectPublisher(queryId, null);
+    }
+
+    public <T> Flow.Publisher<T> selectPublisher(String queryId, Object params) throws Exception {
+        SelectQuery selectQuery = (SelectQuery) configuration.getQueryById(queryId);
+        checkQueryType(selectQuery, Query.QUERY_TYPE.SELECT);
+        return selectPublisher(selectQuery, params);
+    }
+
+    <T> Flow.Publisher<T> selectPublisher(SelectQuery selectQuery, Object params) throws Exception {
+        if (asyncExecutor == null) {
+            throw new IbatisException("Asynchronous execution is not configured for this session");
+        }
+
+        boolean bound = isBound();
+        return new CursorPublisher<>(asyncExecutor, () -> {
+            if (bound) {
+                return selectCursor(selectQuery, params);
+            }
+
+            //every subscription streams on its own connection, handed back to the pool when its cursor closes
+            SqlSession session = newStatementSession();
+            session.closeWithLastCursor = true;
+            try {
+                return session.selectCursor(selectQuery, params);
+            } catch (Exception e) {
+                session.close();
+                throw e;
+            }
+        });
+    }
+
+    public <T> Stream<T> selectStream(String queryId) throws Exception {
+        return selectStream(queryId, null);
+    }
+
+    public <T> Stream<T> selectStream(String queryId, Object params) throws Exception {
+        Cursor<T> cursor = selectCursor(queryId, params);
+        return cursor.stream();
+    }
+
+    <T> Stream<T> selectStream(SelectQuery selectQuery, Object params) throws Exception {
+        Cursor<T> cursor = selectCursor(selectQuery, params);
+        return cursor.stream();
+    }
+
+    public <T> void select(String queryId, ResultHandler<T> handler) throws Exception {
+        select(queryId, null, handler);
+    }
+
+    public <T> void select(String queryId, Object params, ResultHandler<T> handler) throws Exception {
+        select(queryId, params, null, handler);
+    }
+
+    public <T> void select(String queryId, Object params, T target, ResultHandler<T> handler) throws Exception {
+        SelectQuery selectQuery = (SelectQuery) configuration.getQueryById(queryId);
+        checkQueryType(selectQuery, Query.QUERY_TYPE.SELECT);
+        select(selectQuery, params, target, handler);
+    }
+
+    <T> void select(SelectQuery selectQuery, Object params, T target, ResultHandler<T> handler) throws Exception {
+        execute(() -> {
+            DefaultResultContext<T> context = new DefaultResultContext<>();
+
+            Connection connection = acquireReadConnection();
+            PreparedStatement st = null;
+            try {
+                st = prepareStreamingStatement(connection, selectQuery, params);
+                try (ResultSet rs = st.executeQuery()) {
+                    CompiledRowMapper<T> rowMapper = getRowMapper(selectQuery, rs);
+                    while (!context.isStopped() && rs.next()) {
+                        //a caller supplied target is refilled for every row instead of allocating a new object
+                        T row = target == null ? rowMapper.map(rs) : rowMapper.fill(rs, target);
+                        context.nextResultObject(row);
+                        handler.handleResult(context);
+                    }
+                }
+                return null;
+            } finally {
+                closeStreamingStatement(st);
+                releaseReadConnection(connection);
+            }
+        });
+    }
+
+    private PreparedStatement prepareStreamingStatement(Connection connection, SelectQuery selectQuery, Object params) throws Exception {
+        //streamed results get their own statement so a cached one is never shared with an open result set
+        PreparedStatement st = connection.prepareStatement(selectQuery.getSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            applyStatementSettings(st, selectQuery, cursorFetchSize);
+            if (!selectQuery.getParamNames().isEmpty()) {
+                setParameters(st, params, selectQuery.getParamNames(), selectQuery.getFieldsMap());
+            }
+            return st;
+        } catch (Exception e) {
+            closeStreamingStatement(st);
+            throw e;
+        }
+    }
+
+    private void cursorClosed(Connection connection) {
+        boolean finished;
+        lock.lock();
+        try {
+            openCursors.removeIf(cursor -> !cursor.isOpen());
+            releaseReadConnection(connection);
+            finished = closeWithLastCursor && openCursors.isEmpty();
+        } catch (SQLException e) {
+            throw new IbatisException(e);
+        } finally {
+            lock.unlock();
+        }
+
+        if (finished) {
+            close();
+        }
+    }
+
     public int insert(String queryId) throws Exception {
         InsertQuery insertQuery = (InsertQuery) configuration.getQueryById(queryId);
         checkQueryType(insertQuery, Query.QUERY_TYPE.INSERT);
@@ -153,6 +797,11 @@ public class SqlSession implements Closeable {
     }
 
     int insert(InsertQuery insertQuery, Object params) throws Exception {
+        List<Object> rows = asRows(params);
+        if (rows != null) {
+            return insertRows(insertQuery, rows);
+        }
+
         return insertQuery.isUseGeneratedKeys() ?
                 executeQueryWithGeneratedKeys(insertQuery, params, insertQuery.getKeyProperty()) :
                 executeQuery(insertQuery, params);
@@ -211,89 +860,377 @@ public class SqlSession implements Closeable {
     }
 
     private int executeQuery(Query query) throws Exception {
-        String sql = query.getSql();
-        try (Statement st = conn.createStatement()) {
-            return st.executeUpdate(sql);
+        if (executorType == ExecutorType.BATCH) {
+            return addBatch(query, null, null);
         }
+
+        return execute(() -> {
+            String sql = query.getSql();
+            Connection connection = primary();
+            PreparedStatement st = null;
+            try {
+                st = prepareStatement(connection, query, sql, Statement.NO_GENERATED_KEYS);
+                return st.executeUpdate();
+            } finally {
+                closeStatement(connection, st);
+                markWrite();
+            }
+        });
     }
 
     private int executeQuery(Query query, Object params) throws Exception {
-        String sql = query.getSql();
-        List<String> paramNames = query.getParamNames();
-        Map<String, Field> fieldsMap = query.getFieldsMap();
-
-        try (PreparedStatement st = conn.prepareStatement(sql)) {
-            setParameters(st, params, paramNames, fieldsMap);
-            return st.executeUpdate();
+        if (executorType == ExecutorType.BATCH) {
+            return addBatch(query, params, null);
         }
+
+        return execute(() -> {
+            String sql = query.getSql();
+            List<String> paramNames = query.getParamNames();
+            Map<String, PropertyAccessor> fieldsMap = query.getFieldsMap();
+
+            Connection connection = primary();
+            PreparedStatement st = null;
+            try {
+                st = prepareStatement(connection, query, sql, Statement.NO_GENERATED_KEYS);
+                setParameters(st, params, paramNames, fieldsMap);
+                return st.executeUpdate();
+            } finally {
+                closeStatement(connection, st);
+                markWrite();
+            }
+        });
     }
 
     private int executeQueryWithGeneratedKeys(Query query, String keyProperty) throws Exception {
-        String sql = query.getSql();
-        try (Statement st = conn.createStatement()) {
-            st.executeUpdate(sql, Statement.RETURN_GENERATED_KEYS);
-            ResultSet rs = st.getGeneratedKeys();
-            rs.next();
-            rs.close();
-            return rs.findColumn(keyProperty);
+        if (executorType == ExecutorType.BATCH) {
+            return addBatch(query, null, keyProperty);
         }
+
+        return execute(() -> {
+            String sql = query.getSql();
+            Connection connection = primary();
+            PreparedStatement st = null;
+            try {
+                st = prepareStatement(connection, query, sql, Statement.RETURN_GENERATED_KEYS);
+                return st.executeUpdate();
+            } finally {
+                closeStatement(connection, st);
+                markWrite();
+            }
+        });
     }
 
     private int executeQueryWithGeneratedKeys(Query query, Object params, String keyProperty) throws Exception {
-        String sql = query.getSql();
-        List<String> paramNames = query.getParamNames();
-        Map<String, Field> fieldsMap = query.getFieldsMap();
+        if (executorType == ExecutorType.BATCH) {
+            return addBatch(query, params, keyProperty);
+        }
 
-        try (PreparedStatement st = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            setParameters(st, params, paramNames, fieldsMap);
-            st.executeUpdate();
-            ResultSet rs = st.getGeneratedKeys();
-            rs.next();
-            rs.close();
-            return rs.findColumn(keyProperty);
+        return execute(() -> {
+            String sql = query.getSql();
+            List<String> paramNames = query.getParamNames();
+            Map<String, PropertyAccessor> fieldsMap = query.getFieldsMap();
+
+            Connection connection = primary();
+            PreparedStatement st = null;
+            try {
+                st = prepareStatement(connection, query, sql, Statement.RETURN_GENERATED_KEYS);
+                setParameters(st, params, paramNames, fieldsMap);
+                int count = st.executeUpdate();
+                assignGeneratedKeys(st, query, keyProperty, Collections.singletonList(params));
+                return count;
+            } finally {
+                closeStatement(connection, st);
+                markWrite();
+            }
+        });
+    }
+
+    private List<Object> asRows(Object params) {
+        if (params instanceof Collection<?> collection) {
+            return new ArrayList<>(collection);
         }
+        if (params != null && params.getClass().isArray()) {
+            int length = java.lang.reflect.Array.getLength(params);
+            List<Object> rows = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                rows.add(java.lang.reflect.Array.get(params, i));
+            }
+            return rows;
+        }
+        return null;
     }
 
-    private void setParameters(PreparedStatement st, Object o, List<String> fNames, Map<String, Field> fieldsMap) throws Exception {
-        if (fNames.size() == 1) {
-            st.setObject(1, o);
+    //collections are inserted as multi-row statements of up to insertChunkSize rows, one round trip per chunk.
+    //rows of a useGeneratedKeys insert are the exception and go one statement per row: MariaDB reports a single key for a
+    //multi-row statement, and deriving the others as firstKey + offset is wrong for INSERT IGNORE, ON DUPLICATE KEY UPDATE
+    //or an auto_increment_increment above 1. Batch sessions queue every row as a batch entry instead
+    private int insertRows(InsertQuery insertQuery, List<Object> rows) throws Exception {
+        String keyProperty = insertQuery.isUseGeneratedKeys() ? insertQuery.getKeyProperty() : null;
+
+        if (executorType == ExecutorType.BATCH || !insertQuery.isMultiRowCapable() || keyProperty != null) {
+            int count = 0;
+            for (Object row : rows) {
+                count += keyProperty == null ?
+                        executeQuery(insertQuery, row) :
+                        executeQueryWithGeneratedKeys(insertQuery, row, keyProperty);
+            }
+            return executorType == ExecutorType.BATCH ? BATCH_UPDATE_RETURN_VALUE : count;
+        }
+
+        return execute(() -> {
+            List<String> paramNames = insertQuery.getParamNames();
+            Map<String, PropertyAccessor> fieldsMap = insertQuery.getFieldsMap();
+            int chunkSize = Math.max(1, Math.min(insertChunkSize, MAX_PARAMETERS / Math.max(1, paramNames.size())));
+
+            Connection connection = primary();
+            int count = 0;
+            for (int from = 0; from < rows.size(); from += chunkSize) {
+                List<Object> chunk = rows.subList(from, Math.min(from + chunkSize, rows.size()));
+                PreparedStatement st = null;
+                try {
+                    st = prepareStatement(connection, insertQuery, insertQuery.getMultiRowSql(chunk.size()), Statement.NO_GENERATED_KEYS);
+                    int index = 1;
+                    for (Object row : chunk) {
+                        index = setParameters(st, index, row, paramNames, fieldsMap);
+                    }
+                    count += st.executeUpdate();
+                } finally {
+                    closeStatement(connection, st);
+                    markWrite();
+                }
+            }
+            return count;
+        });
+    }
+
+    private int addBatch(Query query, Object params, String keyProperty) throws Exception {
+        return execute(() -> {
+            if (batchResult != null && batchResult.getQuery() != query) {
+                flushBatch();
+            }
+
+            if (batchStatement == null) {
+                int autoGeneratedKeys = keyProperty == null ? Statement.NO_GENERATED_KEYS : Statement.RETURN_GENERATED_KEYS;
+                batchStatement = prepareStatement(primary(), query, query.getSql(), autoGeneratedKeys);
+                batchResult = new BatchResult(query);
+                batchKeyProperty = keyProperty;
+            }
+
+            if (!query.getParamNames().isEmpty()) {
+                setParameters(batchStatement, params, query.getParamNames(), query.getFieldsMap());
+            }
+            batchStatement.addBatch();
+            batchResult.addParameterObject(params);
+
+            if (batchFlushSize > 0 && batchResult.getParameterObjects().size() >= batchFlushSize) {
+                flushBatch();
+            }
+            return BATCH_UPDATE_RETURN_VALUE;
+        });
+    }
+
+    private void flushBatch() throws Exception {
+        if (batchStatement == null) {
             return;
         }
 
-        for (int i = 0; i < fNames.size(); i++) {
-            Field f = fieldsMap.get(fNames.get(i));
-            f.setAccessible(true);
-            Object value = f.get(o);
-            st.setObject(i + 1, value);
+        PreparedStatement st = batchStatement;
+        BatchResult result = batchResult;
+        String keyProperty = batchKeyProperty;
+        batchStatement = null;
+        batchResult = null;
+        batchKeyProperty = null;
+
+        try {
+            result.setUpdateCounts(st.executeBatch());
+            if (keyProperty != null) {
+                assignGeneratedKeys(st, result.getQuery(), keyProperty, result.getParameterObjects());
+            }
+            batchResults.add(result);
+        } finally {
+            st.clearBatch();
+            closeStatement(conn, st);
+            markWrite();
         }
     }
 
-    private <T> T getObject(ResultSet rs, Constructor<?> constructor, Map<String, Field> fieldsMap) throws Exception {
-        T o = (T) constructor.newInstance();
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int columnCount = rsmd.getColumnCount();
+    public List<BatchResult> flushStatements() throws Exception {
+        return execute(() -> {
+            flushBatch();
+            List<BatchResult> results = new ArrayList<>(batchResults);
+            batchResults.clear();
+            return results;
+        });
+    }
 
-        for (int i = 1; i <= columnCount; i++) {
-            String columnName = rsmd.getColumnName(i);
-            String normalizedName = getNormalizedFieldName(columnName);
+    public void commit() throws Exception {
+        execute(() -> {
+            flushBatch();
+            transaction.commit();
+            dirty = false;
+            return null;
+        });
+    }
 
-            if (!fieldsMap.containsKey(normalizedName)) {
-                throw new IllegalArgumentException("No such field.");
+    public void rollback() throws Exception {
+        execute(() -> {
+            discardBatch();
+            transaction.rollback();
+            dirty = false;
+            return null;
+        });
+    }
+
+    public Savepoint setSavepoint() throws Exception {
+        return execute(() -> {
+            flushBatch();
+            return transactionConnection().setSavepoint();
+        });
+    }
+
+    public Savepoint setSavepoint(String name) throws Exception {
+        return execute(() -> {
+            flushBatch();
+            return transactionConnection().setSavepoint(name);
+        });
+    }
+
+    public void rollback(Savepoint savepoint) throws Exception {
+        execute(() -> {
+            discardBatch();
+            transactionConnection().rollback(savepoint);
+            return null;
+        });
+    }
+
+    public void releaseSavepoint(Savepoint savepoint) throws Exception {
+        execute(() -> {
+            transactionConnection().releaseSavepoint(savepoint);
+            return null;
+        });
+    }
+
+    private Connection transactionConnection() throws Exception {
+        //a managed transaction only knows its mode once the connection is borrowed, so borrow before checking it
+        Connection connection = primary();
+        if (transaction.isAutoCommit()) {
+            throw new IbatisException("Savepoints require a transaction, the session connection is in autocommit mode");
+        }
+        return connection;
+    }
+
+    private void discardBatch() throws SQLException {
+        if (batchStatement == null) {
+            return;
+        }
+
+        PreparedStatement st = batchStatement;
+        batchStatement = null;
+        batchResult = null;
+        batchKeyProperty = null;
+        try {
+            st.clearBatch();
+        } finally {
+            closeStatement(conn, st);
+        }
+    }
+
+    private void assignGeneratedKeys(Statement st, Query query, String keyProperty, List<Object> parameterObjects) throws Exception {
+        Map<String, PropertyAccessor> fieldsMap = query.getFieldsMap();
+        PropertyAccessor f = fieldsMap == null ? null : fieldsMap.get(getNormalizedFieldName(keyProperty));
+        if (f == null) {
+            throw new IbatisException("No such key property: " + keyProperty);
+        }
+
+        try (ResultSet rs = st.getGeneratedKeys()) {
+            for (Object parameterObject : parameterObjects) {
+                if (!rs.next()) {
+                    //updates may legitimately report no keys, an insert that does would leave rows without ids
+                    if (query.getQueryType() == Query.QUERY_TYPE.INSERT) {
+                        throw new IbatisException("Statement " + query.getId() + " returned fewer generated keys than the " + parameterObjects.size() + " rows it inserted");
+                    }
+                    break;
+                }
+                if (f.getDeclaringClass().isInstance(parameterObject)) {
+                    f.set(parameterObject, convertKey(rs.getObject(1), f.getType()));
+                }
             }
+        }
+    }
 
-            Object value;
-            try {
-                value = rs.getObject(columnName);
-            } catch (SQLException e) {
-                return null;
+    private Object convertKey(Object value, Class<?> type) {
+        if (!(value instanceof Number number)) {
+            return value;
+        }
+
+        if (type == int.class || type == Integer.class) {
+            return number.intValue();
+        } else if (type == long.class || type == Long.class) {
+            return number.longValue();
+        } else if (type == short.class || type == Short.class) {
+            return number.shortValue();
+        } else if (type == String.class) {
+            return number.toString();
+        }
+        return value;
+    }
+
+    private void setParameters(PreparedStatement st, Object o, List<String> fNames, Map<String, PropertyAccessor> fieldsMap) throws Exception {
+        setParameters(st, 1, o, fNames, fieldsMap);
+    }
+
+    private int setParameters(PreparedStatement st, int index, Object o, List<String> fNames, Map<String, PropertyAccessor> fieldsMap) throws Exception {
+        if (fNames.size() == 1) {
+            PropertyAccessor f = fieldsMap == null ? null : fieldsMap.get(fNames.get(0));
+            if (f == null || !f.getDeclaringClass().isInstance(o)) {
+                st.setObject(index, o);
+                return index + 1;
             }
+        }
 
-            Field f = fieldsMap.get(normalizedName);
-            f.setAccessible(true);
-            f.set(o, value);
+        for (int i = 0; i < fNames.size(); i++) {
+            PropertyAccessor f = fieldsMap.get(fNames.get(i));
+            Object value = f.get(o);
+            st.setObject(index + i, value);
         }
+        return index + fNames.size();
+    }
+
+    //the column to field resolution only depends on the shape of the result set, so it is compiled once per shape
+    //every mapper of a query produces its result type, so the cached mapper is cast to the caller's row type
+    @SuppressWarnings("unchecked")
+    private <T> CompiledRowMapper<T> getRowMapper(SelectQuery selectQuery, ResultSet rs) throws Exception {
+        ResultSetMetaData metaData = rs.getMetaData();
+        String signature = getSignature(metaData);
+        RowMapperCache rowMappers = (RowMapperCache) selectQuery.getRowMapperCache(RowMapperCache::new);
+        CompiledRowMapper<?> rowMapper = rowMappers.get(signature);
+        if (rowMapper == null) {
+            rowMapper = rowMappers.putIfAbsent(signature, compileRowMapper(metaData, selectQuery.getResultType(), selectQuery.getResultFieldsMap()));
+        }
+        return (CompiledRowMapper<T>) rowMapper;
+    }
+
+    private String getSignature(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= columnCount; i++) {
+            sb.append(metaData.getColumnName(i)).append(':').append(metaData.getColumnType(i)).append(',');
+        }
+        return sb.toString();
+    }
 
-        return o;
+    private <T> CompiledRowMapper<T> compileRowMapper(ResultSetMetaData metaData, Class<?> resultType, Map<String, PropertyAccessor> fieldsMap) throws Exception {
+        int columnCount = metaData.getColumnCount();
+        PropertyAccessor[] fields = new PropertyAccessor[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            String normalizedName = getNormalizedFieldName(metaData.getColumnName(i));
+            PropertyAccessor f = fieldsMap == null ? null : fieldsMap.get(normalizedName);
+            if (f == null) {
+                throw new IllegalArgumentException("No such field.");
+            }
+            fields[i - 1] = f;
+        }
+        return new CompiledRowMapper<>(resultType.getDeclaredConstructor(), fields, RowMapperGenerator.generate(resultType, fields));
     }
 
     private String getNormalizedFieldName(String fName) {
@@ -318,13 +1255,21 @@ public class SqlSession implements Closeable {
         }
 
         var handler = new DaoHandler(this, configuration, type);
-        return (T) Proxy.newProxyInstance(
+        return type.cast(Proxy.newProxyInstance(
                 ClassLoader.getSystemClassLoader(),
-                new Class[]{type}, handler);
+                new Class<?>[]{type}, handler));
+    }
+
+    public Connection getConnection() throws Exception {
+        return execute(this::primary);
     }
 
-    public Connection getConnection() {
-        return this.conn;
+    public long getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    public void setReadYourWritesWindow(long readYourWritesWindow) {
+        this.readYourWritesWindow = readYourWritesWindow;
     }
 
     public Configuration getConfiguration() {
@@ -333,13 +1278,46 @@ public class SqlSession implements Closeable {
 
     @Override
     public void close() {
+        lock.lock();
         try {
-            if (this.dcp != null)
-                dcp.releaseConnection(conn);
-            else
-                conn.close();
+            for (Cursor<?> cursor : new ArrayList<>(openCursors)) {
+                cursor.close();
+            }
+            //work that was never committed is rolled back, pending batches included
+            if (transaction.isAutoCommit()) {
+                flushBatch();
+            } else {
+                discardBatch();
+                if (dirty) {
+                    transaction.rollback();
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                releasePrimary();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void releasePrimary() {
+        try {
+            transaction.close();
         } catch (SQLException e) {
             throw new RuntimeException(e);
+        } finally {
+            conn = null;
         }
     }
+
+    private interface RowConsumer {
+        void accept(Object row) throws Exception;
+    }
+
+    private interface SessionCall<T> {
+        T call(SqlSession session) throws Exception;
+    }
 }
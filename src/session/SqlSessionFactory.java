@@ -2,24 +2,110 @@ package session;
 
 import dto.Configuration;
 import dto.data_source.DataSource;
-import dto.data_source.PooledDataSource;
-import utility.DatabaseConnectionPool;
+import transaction.JdbcTransactionFactory;
+import transaction.Transaction;
+import transaction.TransactionFactory;
+import utility.ConnectionPriority;
+import utility.VirtualThreads;
+
+import java.sql.Connection;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
 
 public class SqlSessionFactory {
+    private static final Logger LOGGER = Logger.getLogger(SqlSessionFactory.class.getName());
     private final Configuration configuration;
     private final DataSource dataSource;
+    private final TransactionFactory transactionFactory;
+    private volatile ExecutorService executor;
+    private volatile AsyncExecutor asyncExecutor;
+    private volatile boolean defaultAsyncExecutor;
 
     SqlSessionFactory(Configuration configuration, DataSource dataSource) {
+        this(configuration, dataSource, new JdbcTransactionFactory());
+    }
+
+    SqlSessionFactory(Configuration configuration, DataSource dataSource, TransactionFactory transactionFactory) {
         this.configuration = configuration;
         this.dataSource = dataSource;
+        this.transactionFactory = transactionFactory;
+        if (configuration.isUseVirtualThreads()) {
+            setUseVirtualThreads(true);
+        }
+        this.asyncExecutor = new AsyncExecutor(VirtualThreads.newExecutor("sql-async"), configuration.getAsyncMaxInFlight());
+        this.defaultAsyncExecutor = true;
     }
 
     public SqlSession openSession() throws Exception {
-        DatabaseConnectionPool dcp = null;
-        if (dataSource instanceof PooledDataSource pooledDataSource) {
-            dcp = pooledDataSource.getDcp();
+        return openSession(ConnectionPriority.NORMAL);
+    }
+
+    public SqlSession openSession(ConnectionPriority priority) throws Exception {
+        return openSession(ExecutorType.valueOf(configuration.getDefaultExecutorType()), priority);
+    }
+
+    public SqlSession openSession(ExecutorType executorType) throws Exception {
+        return openSession(executorType, ConnectionPriority.NORMAL);
+    }
+
+    public SqlSession openSession(ExecutorType executorType, ConnectionPriority priority) throws Exception {
+        return openSession(executorType, priority, true);
+    }
+
+    public SqlSession openSession(boolean autoCommit) throws Exception {
+        return openSession(ExecutorType.valueOf(configuration.getDefaultExecutorType()), ConnectionPriority.NORMAL, autoCommit);
+    }
+
+    public SqlSession openSession(ExecutorType executorType, boolean autoCommit) throws Exception {
+        return openSession(executorType, ConnectionPriority.NORMAL, autoCommit);
+    }
+
+    public SqlSession openSession(ExecutorType executorType, ConnectionPriority priority, boolean autoCommit) throws Exception {
+        Transaction transaction = transactionFactory.newTransaction(dataSource, priority, autoCommit);
+        return new SqlSession(configuration, dataSource, transaction, priority, executorType, executor, asyncExecutor);
+    }
+
+    //joins a transaction whose connection is owned by an outer coordinator
+    public SqlSession openSession(Connection connection) throws Exception {
+        return openSession(ExecutorType.valueOf(configuration.getDefaultExecutorType()), connection);
+    }
+
+    public SqlSession openSession(ExecutorType executorType, Connection connection) throws Exception {
+        Transaction transaction = transactionFactory.newTransaction(connection);
+        return new SqlSession(configuration, dataSource, transaction, ConnectionPriority.NORMAL, executorType, executor, asyncExecutor);
+    }
+
+    //blocking JDBC calls of new sessions run on virtual threads. Without virtual thread support the calls stay on the calling
+    //thread, since a platform pool would only add a thread hop while the caller still blocks, and isUseVirtualThreads stays false
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        if (useVirtualThreads && !VirtualThreads.isSupported()) {
+            LOGGER.warning("Virtual threads are not available on this runtime, statements run on the calling thread");
+            useVirtualThreads = false;
+        }
+
+        ExecutorService previous = this.executor;
+        this.executor = useVirtualThreads ? VirtualThreads.newExecutor("sql-session") : null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    public boolean isUseVirtualThreads() {
+        return this.executor != null;
+    }
+
+    public void setAsyncExecutor(ExecutorService asyncExecutor) {
+        AsyncExecutor previous = this.asyncExecutor;
+        boolean ownedPrevious = this.defaultAsyncExecutor;
+        this.asyncExecutor = new AsyncExecutor(asyncExecutor, configuration.getAsyncMaxInFlight());
+        this.defaultAsyncExecutor = false;
+        if (ownedPrevious) {
+            previous.shutdown();
         }
-        return new SqlSession(configuration, dataSource.getConnection(), dcp);
+    }
+
+    public ExecutorService getAsyncExecutor() {
+        return this.asyncExecutor.getExecutor();
     }
 
     public SqlSession openSession(Configuration configuration) throws Exception {
@@ -28,6 +114,10 @@ public class SqlSessionFactory {
         return factory.openSession();
     }
 
+    public TransactionFactory getTransactionFactory() {
+        return this.transactionFactory;
+    }
+
     public Configuration getConfiguration() {
         return this.configuration;
     }
@@ -3,6 +3,7 @@ package session;
 
 import dto.*;
 import dto.data_source.DataSource;
+import dto.data_source.PooledDataSource;
 import parsers.ConfigurationParser;
 
 import java.io.*;
@@ -65,7 +66,10 @@ public class SqlSessionFactoryBuilder {
         for (Map.Entry<String, Environment> env : this.configuration.getEnvironments().entrySet()) {
             Environment e = env.getValue();
             DataSource dataSource = e.getDataSource();
-            SqlSessionFactory factory = new SqlSessionFactory(this.configuration, dataSource);
+            if (dataSource instanceof PooledDataSource pooledDataSource) {
+                pooledDataSource.prepareWarmUpStatements(this.configuration);
+            }
+            SqlSessionFactory factory = new SqlSessionFactory(this.configuration, dataSource, e.getTransactionFactory());
             this.configuration.getEnvironmentFactories().put(e.getId(), factory);
         }
     }
@@ -0,0 +1,40 @@
+package session;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class StatementWatchdog {
+    private static final Logger LOGGER = Logger.getLogger(StatementWatchdog.class.getName());
+    private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "statement-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        //most statements finish in time, disarmed watchdogs should not pile up in the queue
+        SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    private StatementWatchdog() {
+    }
+
+    static ScheduledFuture<?> arm(Statement st, long delayMillis) {
+        return SCHEDULER.schedule(() -> cancel(st), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void cancel(Statement st) {
+        try {
+            if (!st.isClosed()) {
+                st.cancel();
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Failed to cancel statement past its deadline", e);
+        }
+    }
+}
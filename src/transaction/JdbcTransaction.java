@@ -0,0 +1,88 @@
+package transaction;
+
+import dto.data_source.DataSource;
+import utility.ConnectionPriority;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class JdbcTransaction implements Transaction {
+    private final DataSource dataSource;
+    private final ConnectionPriority priority;
+    private final boolean autoCommit;
+    private Connection connection;
+
+    public JdbcTransaction(DataSource dataSource, ConnectionPriority priority, boolean autoCommit) {
+        this.dataSource = dataSource;
+        this.priority = priority;
+        this.autoCommit = autoCommit;
+    }
+
+    public JdbcTransaction(Connection connection) throws SQLException {
+        this.dataSource = null;
+        this.priority = null;
+        this.autoCommit = connection.getAutoCommit();
+        this.connection = connection;
+    }
+
+    @Override
+    public Connection getConnection() throws Exception {
+        if (connection == null) {
+            //the connection is borrowed on the first statement, not when the session opens
+            open(dataSource.getConnection(priority));
+        }
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection(long timeoutMillis) throws Exception {
+        if (connection == null) {
+            open(dataSource.getConnection(priority, timeoutMillis));
+        }
+        return connection;
+    }
+
+    private void open(Connection connection) throws SQLException {
+        this.connection = connection;
+        if (connection.getAutoCommit() != autoCommit) {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    @Override
+    public boolean isAutoCommit() {
+        return autoCommit;
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        if (connection != null && !autoCommit) {
+            connection.commit();
+        }
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        if (connection != null && !autoCommit) {
+            connection.rollback();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (connection == null || dataSource == null) {
+            return;
+        }
+
+        Connection released = connection;
+        connection = null;
+        try {
+            //pooled connections go back in autocommit mode, the session has already rolled back unfinished work
+            if (!released.getAutoCommit()) {
+                released.setAutoCommit(true);
+            }
+        } finally {
+            dataSource.releaseConnection(released);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package transaction;
+
+import dto.data_source.DataSource;
+import exceptions.IbatisException;
+import utility.ConnectionPriority;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class JdbcTransactionFactory implements TransactionFactory {
+    @Override
+    public Transaction newTransaction(DataSource dataSource, ConnectionPriority priority, boolean autoCommit) {
+        return new JdbcTransaction(dataSource, priority, autoCommit);
+    }
+
+    @Override
+    public Transaction newTransaction(Connection connection) {
+        try {
+            return new JdbcTransaction(connection);
+        } catch (SQLException e) {
+            throw new IbatisException("Failed to read the auto-commit mode of the connection", e);
+        }
+    }
+}
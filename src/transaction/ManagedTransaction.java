@@ -0,0 +1,75 @@
+package transaction;
+
+import dto.data_source.DataSource;
+import exceptions.IbatisException;
+import utility.ConnectionPriority;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class ManagedTransaction implements Transaction {
+    private final DataSource dataSource;
+    private final ConnectionPriority priority;
+    private Connection connection;
+
+    public ManagedTransaction(DataSource dataSource, ConnectionPriority priority) {
+        this.dataSource = dataSource;
+        this.priority = priority;
+    }
+
+    public ManagedTransaction(Connection connection) {
+        this.dataSource = null;
+        this.priority = null;
+        this.connection = connection;
+    }
+
+    @Override
+    public Connection getConnection() throws Exception {
+        if (connection == null) {
+            connection = dataSource.getConnection(priority);
+        }
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection(long timeoutMillis) throws Exception {
+        if (connection == null) {
+            connection = dataSource.getConnection(priority, timeoutMillis);
+        }
+        return connection;
+    }
+
+    //the outer coordinator owns the transaction boundaries, so the mode is whatever it left on the connection.
+    //until a connection is borrowed there is no transaction to stay in, so reads may still go to a replica
+    @Override
+    public boolean isAutoCommit() {
+        if (connection == null) {
+            return true;
+        }
+
+        try {
+            return connection.getAutoCommit();
+        } catch (SQLException e) {
+            throw new IbatisException(e);
+        }
+    }
+
+    @Override
+    public void commit() {
+    }
+
+    @Override
+    public void rollback() {
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (connection == null || dataSource == null) {
+            return;
+        }
+
+        Connection released = connection;
+        connection = null;
+        dataSource.releaseConnection(released);
+    }
+}
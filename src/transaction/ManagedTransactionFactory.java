@@ -0,0 +1,18 @@
+package transaction;
+
+import dto.data_source.DataSource;
+import utility.ConnectionPriority;
+
+import java.sql.Connection;
+
+public class ManagedTransactionFactory implements TransactionFactory {
+    @Override
+    public Transaction newTransaction(DataSource dataSource, ConnectionPriority priority, boolean autoCommit) {
+        return new ManagedTransaction(dataSource, priority);
+    }
+
+    @Override
+    public Transaction newTransaction(Connection connection) {
+        return new ManagedTransaction(connection);
+    }
+}
@@ -0,0 +1,18 @@
+package transaction;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public interface Transaction {
+    Connection getConnection() throws Exception;
+
+    Connection getConnection(long timeoutMillis) throws Exception;
+
+    boolean isAutoCommit();
+
+    void commit() throws SQLException;
+
+    void rollback() throws SQLException;
+
+    void close() throws SQLException;
+}
@@ -0,0 +1,12 @@
+package transaction;
+
+import dto.data_source.DataSource;
+import utility.ConnectionPriority;
+
+import java.sql.Connection;
+
+public interface TransactionFactory {
+    Transaction newTransaction(DataSource dataSource, ConnectionPriority priority, boolean autoCommit);
+
+    Transaction newTransaction(Connection connection);
+}
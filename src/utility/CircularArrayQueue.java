@@ -2,6 +2,8 @@ package utility;
 
 import java.util.*;
 
+//elements are stored in an Object[], every read casts back to E
+@SuppressWarnings("unchecked")
 public class CircularArrayQueue<E> implements Queue<E> {
     private static final int DEFAULT_CAPACITY = 16;
     Object[] values;
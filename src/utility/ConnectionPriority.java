@@ -0,0 +1,17 @@
+package utility;
+
+public enum ConnectionPriority {
+    INTERACTIVE("reservedInteractive"),
+    NORMAL("reservedNormal"),
+    BATCH("reservedBatch");
+
+    private final String reservedProperty;
+
+    ConnectionPriority(String reservedProperty) {
+        this.reservedProperty = reservedProperty;
+    }
+
+    String getReservedProperty() {
+        return reservedProperty;
+    }
+}
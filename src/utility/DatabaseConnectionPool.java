@@ -1,123 +1,791 @@
 package utility;
 
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class DatabaseConnectionPool {
-    private static final DatabaseConnectionPool instance = null;
-    private static final long KEEP_AWAKE_TIME = 600000; //10min
-    private static final long EXPIRATION_TIME = 1800000; //30min
-    private final CircularArrayQueue<Connection> pool;
-    private final HashMap<Connection, ConnectionInfo> conInfoMap;
+    private static final Logger LOGGER = Logger.getLogger(DatabaseConnectionPool.class.getName());
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+    private static final int LANES = ConnectionPriority.values().length;
+    private static final int LANE_BITS = 16;
+    private static final long LANE_MASK = (1L << LANE_BITS) - 1;
+    private final AtomicReferenceArray<ConnectionInfo> slots;
+    private final ConcurrentHashMap<Connection, ConnectionInfo> conInfoMap;
+    private final AtomicInteger totalConnections;
+    private final AtomicLong lanePermits; //borrowed connections per priority, LANE_BITS each
+    private final List<ConcurrentLinkedQueue<Waiter>> waiterQueues;
+    private final AtomicInteger[] laneWaiters;
+    private final AtomicInteger waiters;
+    private final ThreadLocal<Integer> lastSlot;
     private final String url;
     private final String user;
     private final String password;
-    private final int poolSize;
-    private final Timer timer;
+    private final PoolConfiguration config;
+    private final ScheduledExecutorService houseKeeper;
+    private final PoolMetrics metrics;
+    private ObjectName mBeanName;
+    private volatile List<String> warmUpSql;
 
 
-    private DatabaseConnectionPool(String url, String user, String password, int poolSize) throws SQLException {
+    public DatabaseConnectionPool(String url, String user, String password, PoolConfiguration config) throws SQLException {
         this.url = url;
         this.user = user;
         this.password = password;
-        this.poolSize = poolSize;
-        this.conInfoMap = new HashMap<>();
-        this.pool = new CircularArrayQueue<>(poolSize);
-        this.timer = new Timer();
-        for (int i = 0; i < poolSize; i++) {
-            addConnection();
+        this.config = config;
+        this.slots = new AtomicReferenceArray<>(config.maxActive);
+        this.conInfoMap = new ConcurrentHashMap<>(config.maxActive);
+        this.totalConnections = new AtomicInteger();
+        this.lanePermits = new AtomicLong();
+        this.waiterQueues = new ArrayList<>(LANES);
+        this.laneWaiters = new AtomicInteger[LANES];
+        for (int i = 0; i < LANES; i++) {
+            this.waiterQueues.add(new ConcurrentLinkedQueue<>());
+            this.laneWaiters[i] = new AtomicInteger();
+        }
+        this.waiters = new AtomicInteger();
+        this.lastSlot = new ThreadLocal<>();
+        this.warmUpSql = Collections.emptyList();
+        this.metrics = new PoolMetrics(this);
+        this.houseKeeper = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory(config.poolName + "-housekeeper"));
+        registerMBean();
+        try {
+            warmUp();
+        } catch (SQLException | RuntimeException e) {
+            //stop the housekeeper, drop the MBean and close whatever warm-up managed to open
+            close();
+            throw e;
+        }
+    }
+
+    private void registerMBean() {
+        if (!config.registerMBean) {
+            return;
+        }
+
+        try {
+            //pools built from the same configuration share a name, later ones register as name-2, name-3...
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (int i = 1; mBeanName == null; i++) {
+                String suffix = i == 1 ? "" : "-" + i;
+                ObjectName name = new ObjectName("utility:type=DatabaseConnectionPool,name=" + ObjectName.quote(config.poolName + suffix));
+                try {
+                    server.registerMBean(metrics, name);
+                    this.mBeanName = name;
+                } catch (InstanceAlreadyExistsException ignored) {
+                }
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Failed to register metrics MBean for pool " + config.poolName, e);
+        }
+    }
+
+    private void unregisterMBean() {
+        if (mBeanName == null) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(mBeanName)) {
+                server.unregisterMBean(mBeanName);
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.FINE, "Failed to unregister metrics MBean for pool " + config.poolName, e);
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    //housekeeping starts only after warm-up, an earlier run would see warm-up's connections missing and open extra ones to reach minIdle
+    private void startHousekeeping() {
+        houseKeeper.scheduleWithFixedDelay(this::houseKeep, config.housekeepingPeriod, config.housekeepingPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    private void warmUp() throws SQLException {
+        if (config.warmUpMode == PoolConfiguration.WARM_UP_MODE.SERIAL || config.minIdle < 2) {
+            for (int i = 0; i < config.minIdle; i++) {
+                addConnection(ConnectionInfo.IDLE);
+            }
+            startHousekeeping();
+            return;
+        }
+
+        int threads = Math.min(config.warmUpThreads, config.minIdle);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, daemonThreadFactory(config.poolName + "-warmup"));
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < config.minIdle; i++) {
+            futures.add(executor.submit(this::warmUpConnection));
+        }
+        executor.shutdown();
+
+        if (config.warmUpMode == PoolConfiguration.WARM_UP_MODE.LAZY) {
+            //the constructor returns right away, the housekeeper waits for the background warm-up instead
+            houseKeeper.execute(() -> {
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        //already logged by warmUpConnection
+                    } catch (InterruptedException e) {
+                        //the pool was closed while warming up
+                        return;
+                    }
+                }
+                startHousekeeping();
+            });
+            return;
+        }
+
+        try {
+            //wait for every task so no connection is still being opened when the caller cleans up after a failure
+            SQLException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof SQLException sqlException ?
+                                sqlException :
+                                new SQLException("Failed to warm up connection pool", e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            startHousekeeping();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while warming up connection pool", e);
         }
     }
 
-    public static DatabaseConnectionPool init(String url, String user, String password, int poolSize) throws Exception {
-        if (instance != null) {
-            throw new Exception("Pool is already created");
+    private Void warmUpConnection() throws SQLException {
+        try {
+            ConnectionInfo info = addConnection(ConnectionInfo.IDLE);
+            if (info != null) {
+                handOff(info);
+            }
+            return null;
+        } catch (SQLException e) {
+            if (config.warmUpMode == PoolConfiguration.WARM_UP_MODE.LAZY) {
+                LOGGER.log(Level.WARNING, "Failed to open connection during pool warm-up", e);
+            }
+            throw e;
         }
+    }
 
-        return new DatabaseConnectionPool(url, user, password, poolSize);
+    public void setWarmUpStatements(List<String> sqls) {
+        this.warmUpSql = List.copyOf(sqls);
+        houseKeeper.execute(this::prepareIdleConnections);
     }
 
-    public static DatabaseConnectionPool getConnectionPool() throws Exception {
-        if (instance == null) {
-            throw new Exception("Pool is not created yet");
+    private void prepareIdleConnections() {
+        for (int i = 0; i < slots.length(); i++) {
+            ConnectionInfo info = slots.get(i);
+            if (info != null && info.state.compareAndSet(ConnectionInfo.IDLE, ConnectionInfo.RESERVED)) {
+                prepareStatements(info);
+                info.state.set(ConnectionInfo.IDLE);
+                handOff(info);
+            }
         }
+    }
 
-        return instance;
+    private void prepareStatements(ConnectionInfo info) {
+        for (String sql : warmUpSql) {
+            if (info.statementCache != null) {
+                try {
+                    info.statementCache.prepareStatement(sql);
+                } catch (SQLException e) {
+                    LOGGER.log(Level.FINE, "Failed to prepare warm-up statement: " + sql, e);
+                }
+                continue;
+            }
+
+            try {
+                info.connection.prepareStatement(sql).close();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Failed to prepare warm-up statement: " + sql, e);
+            }
+        }
+    }
+
+    public String getPoolName() {
+        return config.poolName;
+    }
+
+    public PoolConfiguration getConfiguration() {
+        return config;
+    }
+
+    public PoolMetrics getMetrics() {
+        return metrics;
     }
 
     public Connection getConnection() throws Exception {
-        if (pool.isEmpty() && conInfoMap.size() < poolSize) {
-            addConnection();
+        return getConnection(config.acquireTimeout);
+    }
+
+    public Connection getConnection(long timeout) throws SQLException {
+        return getConnection(timeout, ConnectionPriority.NORMAL);
+    }
+
+    public Connection getConnection(ConnectionPriority priority) throws SQLException {
+        return getConnection(config.acquireTimeout, priority);
+    }
+
+    public Connection getConnection(long timeout, ConnectionPriority priority) throws SQLException {
+        if (houseKeeper.isShutdown()) {
+            throw new SQLException("Connection pool " + config.poolName + " is closed");
         }
 
-        Connection con = pool.poll();
-        if (con == null) {
-            throw new Exception("All connections are used");
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+        int lane = priority.ordinal();
+        ConnectionInfo info;
+        do {
+            info = borrow(lane, deadline);
+            if (info == null) {
+                metrics.recordAcquireTimeout();
+                throw new SQLTransientConnectionException("Connection is not available, request timed out after " + timeout + "ms");
+            }
+        } while (!isAlive(info));
+
+        long now = System.nanoTime();
+        metrics.recordAcquire(now - start);
+        lastSlot.set(info.slot);
+        info.borrowedNanos = now;
+        info.borrowTrace = sampleBorrowTrace(info.borrowedBy);
+
+        return info.connection;
+    }
+
+    private Throwable sampleBorrowTrace(String threadName) {
+        double rate = config.leakTraceSampleRate;
+        if (rate <= 0 || config.leakDetectionThreshold <= 0) {
+            return null;
         }
+        if (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate) {
+            return null;
+        }
+        return new Throwable("Connection borrowed by thread " + threadName);
+    }
 
-        ConnectionInfo info = conInfoMap.get(con);
-        info.isAvailable = false;
-        info.setNotReturnedTask();
-        timer.schedule(info.notReturned, EXPIRATION_TIME);
+    private ConnectionInfo borrow(int lane, long deadline) throws SQLException {
+        if (!hasWaitersAtOrAbove(lane) && tryAdmit(lane)) {
+            ConnectionInfo info = reserveIdle(lane, Thread.currentThread());
+            if (info == null) {
+                try {
+                    info = addConnection(ConnectionInfo.IN_USE, lane);
+                } catch (SQLException | RuntimeException e) {
+                    //the connection was never handed out, so nobody else would give the permit back
+                    releasePermit(lane);
+                    throw e;
+                }
+                if (info != null && config.growthStep > 1) {
+                    houseKeeper.execute(() -> growPool(config.growthStep - 1));
+                }
+            }
+            if (info != null) {
+                return info;
+            }
+            releasePermit(lane);
+        }
+
+        return await(lane, deadline);
+    }
+
+    private ConnectionInfo await(int lane, long deadline) throws SQLException {
+        Waiter waiter = new Waiter(Thread.currentThread());
+        waiterQueues.get(lane).add(waiter);
+        laneWaiters[lane].incrementAndGet();
+        waiters.incrementAndGet();
+        try {
+            if (totalConnections.get() < config.maxActive) {
+                houseKeeper.execute(this::fillPool);
+            }
+
+            while (true) {
+                dispatch();
+                ConnectionInfo info = waiter.granted();
+                if (info != null) {
+                    return info;
+                }
 
-        return con;
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || Thread.interrupted()) {
+                    if (waiter.cancel()) {
+                        waiterQueues.get(lane).remove(waiter);
+                        if (remaining > 0) {
+                            Thread.currentThread().interrupt();
+                            throw new SQLException("Interrupted while waiting for a connection");
+                        }
+                        return null;
+                    }
+                    return waiter.granted();
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            laneWaiters[lane].decrementAndGet();
+            waiters.decrementAndGet();
+        }
     }
 
-    private void addConnection() throws SQLException {
-        Connection con = DriverManager.getConnection(url, user, password);
-        TimerTask task = getKeepAwakeTask(con);
-        timer.schedule(task, KEEP_AWAKE_TIME);
-        ConnectionInfo info = new ConnectionInfo(task);
-        pool.add(con);
+    private void dispatch() {
+        for (int lane = 0; lane < LANES; lane++) {
+            Waiter waiter;
+            while ((waiter = waiterQueues.get(lane).peek()) != null) {
+                if (!waiter.isWaiting()) {
+                    waiterQueues.get(lane).remove(waiter);
+                    continue;
+                }
+                if (!tryAdmit(lane)) {
+                    break;
+                }
+
+                ConnectionInfo info = reserveIdle(lane, waiter.thread);
+                if (info == null) {
+                    releasePermit(lane);
+                    return;
+                }
+
+                if (waiter.grant(info)) {
+                    waiterQueues.get(lane).remove(waiter);
+                    LockSupport.unpark(waiter.thread);
+                } else {
+                    releasePermit(lane);
+                    info.release();
+                }
+            }
+        }
+    }
+
+    private boolean hasWaitersAtOrAbove(int lane) {
+        for (int i = 0; i <= lane; i++) {
+            if (laneWaiters[i].get() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean tryAdmit(int lane) {
+        while (true) {
+            long permits = lanePermits.get();
+            int borrowed = 0;
+            int reservedForOthers = 0;
+            for (int i = 0; i < LANES; i++) {
+                int laneBorrowed = (int) (permits >>> (i * LANE_BITS) & LANE_MASK);
+                borrowed += laneBorrowed;
+                if (i != lane) {
+                    reservedForOthers += Math.max(0, config.reservedCapacity[i] - laneBorrowed);
+                }
+            }
+
+            if (borrowed + reservedForOthers >= config.maxActive) {
+                return false;
+            }
+            if (lanePermits.compareAndSet(permits, permits + (1L << (lane * LANE_BITS)))) {
+                return true;
+            }
+        }
+    }
+
+    private void releasePermit(int lane) {
+        lanePermits.addAndGet(-(1L << (lane * LANE_BITS)));
+    }
+
+    private ConnectionInfo reserveIdle(int lane, Thread borrower) {
+        Integer hint = lastSlot.get();
+        if (hint != null) {
+            ConnectionInfo info = slots.get(hint);
+            if (info != null && info.reserve(lane, borrower)) {
+                return info;
+            }
+        }
+
+        for (int i = 0; i < slots.length(); i++) {
+            ConnectionInfo info = slots.get(i);
+            if (info != null && info.reserve(lane, borrower)) {
+                return info;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean isAlive(ConnectionInfo info) {
+        if (System.currentTimeMillis() - info.lastValidated() < config.validationWindow) {
+            return true;
+        }
+
+        try {
+            if (info.connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                info.lastValidated = System.currentTimeMillis();
+                return true;
+            }
+        } catch (SQLException ignored) {
+        }
+
+        metrics.recordValidationFailure();
+        //whoever takes the connection out of IN_USE gives its permit back, a reclaimed leak already did
+        if (info.state.compareAndSet(ConnectionInfo.IN_USE, ConnectionInfo.RESERVED)) {
+            releasePermit(info.lane);
+            discardConnection(info);
+        }
+        houseKeeper.execute(this::fillPool);
+        return false;
+    }
+
+    private ConnectionInfo addConnection(int initialState) throws SQLException {
+        return addConnection(initialState, 0);
+    }
+
+    //a connection created IN_USE belongs to the calling thread's borrow on the given lane
+    private ConnectionInfo addConnection(int initialState, int lane) throws SQLException {
+        int total;
+        do {
+            total = totalConnections.get();
+            if (total >= config.maxActive) {
+                return null;
+            }
+        } while (!totalConnections.compareAndSet(total, total + 1));
+
+        Connection con;
+        long start = System.nanoTime();
+        try {
+            con = DriverManager.getConnection(url, user, password);
+        } catch (SQLException e) {
+            totalConnections.decrementAndGet();
+            metrics.recordCreationFailure();
+            throw e;
+        }
+        metrics.recordConnectionCreated(System.nanoTime() - start);
+
+        StatementCache statementCache = config.statementCacheSize > 0 ? new StatementCache(con, config.statementCacheSize, metrics) : null;
+        ConnectionInfo info = new ConnectionInfo(con, initialState, statementCache);
+        if (initialState == ConnectionInfo.IN_USE) {
+            info.markBorrowed(lane, Thread.currentThread());
+        }
+        prepareStatements(info);
         conInfoMap.put(con, info);
+        for (int i = 0; i < slots.length(); i++) {
+            info.slot = i;
+            if (slots.compareAndSet(i, null, info)) {
+                break;
+            }
+        }
+
+        return info;
+    }
+
+    private void discardConnection(ConnectionInfo info) {
+        info.state.set(ConnectionInfo.REMOVED);
+        if (slots.compareAndSet(info.slot, info, null)) {
+            conInfoMap.remove(info.connection);
+            totalConnections.decrementAndGet();
+        }
+
+        try {
+            info.connection.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Failed to close connection " + info.connection, e);
+        }
+    }
+
+    public StatementCache getStatementCache(Connection connection) {
+        ConnectionInfo info = conInfoMap.get(connection);
+        return info == null ? null : info.statementCache;
     }
 
     public boolean releaseConnection(Connection connection) throws SQLException {
-        if (pool.size() == poolSize) {
+        ConnectionInfo info = conInfoMap.get(connection);
+        if (info == null || !info.state.compareAndSet(ConnectionInfo.IN_USE, ConnectionInfo.RESERVED)) {
             return false;
         }
 
-        return pool.add(connection);
+        releasePermit(info.lane);
+        metrics.recordConnectionHold(System.nanoTime() - info.borrowedNanos);
+        info.lastAccess = System.currentTimeMillis();
+        if (info.lastAccess - info.createdAt > config.maxLifetime) {
+            discardConnection(info);
+            houseKeeper.execute(this::fillPool);
+            return true;
+        }
+
+        info.release();
+        lastSlot.set(info.slot);
+        handOff(info);
+        return true;
     }
 
-    private TimerTask getKeepAwakeTask(Connection con) {
-        return new TimerTask() {
-            @Override
-            public void run() {
-                ConnectionInfo info = conInfoMap.get(con);
-                try {
-                    if (con.isClosed()) {
-                        pool.remove(con);
-                        conInfoMap.remove(con);
-                        return;
-                    }
-                    try (Statement st = con.createStatement()) {
-                        st.executeQuery("SELECT 1");
-                    }
-                } catch (SQLException ignored) {
-                    TimerTask next = getKeepAwakeTask(con);
-                    timer.schedule(next, KEEP_AWAKE_TIME);
-                    info.keepAwake = next;
+    public void close() {
+        houseKeeper.shutdownNow();
+        unregisterMBean();
+        for (int i = 0; i < slots.length(); i++) {
+            ConnectionInfo info = slots.get(i);
+            if (info != null) {
+                discardConnection(info);
+            }
+        }
+    }
+
+    private void handOff(ConnectionInfo info) {
+        if (waiters.get() > 0 && info.state.get() == ConnectionInfo.IDLE) {
+            dispatch();
+        }
+    }
+
+    private void houseKeep() {
+        try {
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < slots.length(); i++) {
+                ConnectionInfo info = slots.get(i);
+                if (info == null) {
+                    continue;
+                }
+
+                if (info.state.get() == ConnectionInfo.IN_USE) {
+                    detectLeak(info, now);
+                } else if (info.state.compareAndSet(ConnectionInfo.IDLE, ConnectionInfo.RESERVED)) {
+                    checkIdleConnection(info, now);
                 }
             }
-        };
+
+            fillPool();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Connection pool housekeeping failed", e);
+        }
     }
 
-    private static class ConnectionInfo {
-        boolean isAvailable = true;
-        TimerTask keepAwake;
-        TimerTask notReturned;
+    private void checkIdleConnection(ConnectionInfo info, long now) {
+        boolean expired = now - info.createdAt > config.maxLifetime;
+        boolean idleTimedOut = now - info.lastAccess > config.idleTimeout && totalConnections.get() > config.minIdle;
+        if (expired || idleTimedOut || !keepAlive(info, now)) {
+            discardConnection(info);
+            return;
+        }
+
+        info.state.set(ConnectionInfo.IDLE);
+        handOff(info);
+    }
+
+    private boolean keepAlive(ConnectionInfo info, long now) {
+        if (now - info.lastValidated() < config.keepAliveTime) {
+            return true;
+        }
+
+        try {
+            if (info.connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                info.lastValidated = now;
+                return true;
+            }
+        } catch (SQLException ignored) {
+        }
+        metrics.recordValidationFailure();
+        return false;
+    }
+
+    private void detectLeak(ConnectionInfo info, long now) {
+        long borrowedAt = info.borrowedAt;
+        //0 while a borrow is still being set up
+        if (config.leakDetectionThreshold <= 0 || borrowedAt == 0 || now - borrowedAt <= config.leakDetectionThreshold) {
+            return;
+        }
+
+        if (!info.leakReported) {
+            info.leakReported = true;
+            metrics.recordLeak();
+            LOGGER.log(Level.WARNING, describeLeak(info, now), info.borrowTrace);
+        }
 
-        ConnectionInfo(TimerTask keepAwake) {
-            this.keepAwake = keepAwake;
+        if (config.reclaimLeakedConnections && info.state.compareAndSet(ConnectionInfo.IN_USE, ConnectionInfo.RESERVED)) {
+            LOGGER.warning("Reclaiming leaked connection " + info.connection + " borrowed by thread " + info.borrowedBy);
+            metrics.recordLeakReclaimed();
+            releasePermit(info.lane);
+            discardConnection(info);
         }
+    }
+
+    private String describeLeak(ConnectionInfo info, long now) {
+        return "Connection " + info.connection + " held for " + (now - info.borrowedAt) + "ms by thread " + info.borrowedBy +
+                (info.borrowTrace == null ? " (borrow stack trace not sampled)" : "");
+    }
 
-        public void setNotReturnedTask() {
-            this.notReturned = new TimerTask() {
-                public void run() {
-                    throw new IllegalStateException("Connection not returned in 30 minutes");
+    public List<String> getSuspectedLeaks() {
+        List<String> leaks = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < slots.length(); i++) {
+            ConnectionInfo info = slots.get(i);
+            if (info == null || info.state.get() != ConnectionInfo.IN_USE || !info.leakReported) {
+                continue;
+            }
+
+            StringBuilder sb = new StringBuilder(describeLeak(info, now));
+            if (info.borrowTrace != null) {
+                for (StackTraceElement element : info.borrowTrace.getStackTrace()) {
+                    sb.append(System.lineSeparator()).append("\tat ").append(element);
                 }
-            };
+            }
+            leaks.add(sb.toString());
+        }
+        return leaks;
+    }
+
+    private void growPool(int count) {
+        try {
+            for (int i = 0; i < count; i++) {
+                ConnectionInfo info = addConnection(ConnectionInfo.IDLE);
+                if (info == null) {
+                    return;
+                }
+                handOff(info);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to grow connection pool", e);
+        }
+    }
+
+    private void fillPool() {
+        try {
+            while (idleConnections() < config.minIdle || waiters.get() > 0) {
+                ConnectionInfo info = addConnection(ConnectionInfo.IDLE);
+                if (info == null) {
+                    return;
+                }
+                handOff(info);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to replenish connection pool", e);
+        }
+    }
+
+    int totalConnections() {
+        return totalConnections.get();
+    }
+
+    int activeConnections() {
+        return countConnections(ConnectionInfo.IN_USE);
+    }
+
+    int idleConnections() {
+        return countConnections(ConnectionInfo.IDLE);
+    }
+
+    int pendingThreads() {
+        return waiters.get();
+    }
+
+    private int countConnections(int state) {
+        int count = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            ConnectionInfo info = slots.get(i);
+            if (info != null && info.state.get() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static class ConnectionInfo {
+        static final int IDLE = 0;
+        static final int IN_USE = 1;
+        static final int REMOVED = 2;
+        static final int RESERVED = 3;
+
+        final Connection connection;
+        final AtomicInteger state;
+        final long createdAt;
+        final StatementCache statementCache;
+        int slot;
+        volatile int lane;
+        volatile long lastAccess;
+        volatile long lastValidated;
+        volatile long borrowedAt;
+        volatile long borrowedNanos;
+        volatile String borrowedBy;
+        volatile Throwable borrowTrace;
+        volatile boolean leakReported;
+
+        ConnectionInfo(Connection connection, int initialState, StatementCache statementCache) {
+            this.connection = connection;
+            this.state = new AtomicInteger(initialState);
+            this.statementCache = statementCache;
+            this.createdAt = System.currentTimeMillis();
+            this.lastAccess = this.createdAt;
+            this.lastValidated = this.createdAt;
+        }
+
+        //borrowedAt is written last and cleared on release, so the housekeeper never judges a borrow by a previous one's start
+        boolean reserve(int lane, Thread borrower) {
+            if (!state.compareAndSet(IDLE, IN_USE)) {
+                return false;
+            }
+            markBorrowed(lane, borrower);
+            return true;
+        }
+
+        void markBorrowed(int lane, Thread borrower) {
+            this.lane = lane;
+            this.borrowedBy = borrower.getName();
+            this.borrowTrace = null;
+            this.leakReported = false;
+            this.borrowedAt = System.currentTimeMillis();
+        }
+
+        void release() {
+            borrowedAt = 0;
+            state.set(IDLE);
+        }
+
+        long lastValidated() {
+            return Math.max(lastAccess, lastValidated);
+        }
+    }
+
+    private static class Waiter {
+        private static final Object CANCELLED = new Object();
+
+        final Thread thread;
+        final AtomicReference<Object> result = new AtomicReference<>();
+
+        Waiter(Thread thread) {
+            this.thread = thread;
+        }
+
+        boolean isWaiting() {
+            return result.get() == null;
+        }
+
+        boolean grant(ConnectionInfo info) {
+            return result.compareAndSet(null, info);
+        }
+
+        boolean cancel() {
+            return result.compareAndSet(null, CANCELLED);
+        }
+
+        ConnectionInfo granted() {
+            Object value = result.get();
+            return value instanceof ConnectionInfo info ? info : null;
         }
     }
 }
@@ -1,44 +1,72 @@
 package utility;
 
-import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class FifoCache<K, V> implements Cache<K, V> {
     private final LinkedHashMap<K, V> itemsMap;
     private final long flushInterval;
-    private final Timer timer = new Timer();
-    private final TimerTask timerTask = new TimerTask() {
-        @Override
-        public void run() {
-            itemsMap.clear();
-        }
-    };
+    private final ReentrantLock lock = new ReentrantLock();
+    private ScheduledFuture<?> flushTask;
 
     public FifoCache(int capacity, long flushInterval) {
         this.flushInterval = flushInterval;
         this.itemsMap = new LinkedHashMap<>(capacity) {
             @Override
-            protected boolean removeEldestEntry(Map.Entry eldest) {
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
                 return this.size() > capacity;
             }
         };
 
-        this.timer.scheduleAtFixedRate(timerTask, Date.from(Instant.now()), this.flushInterval);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        flushTask = Schedulers.CACHE_FLUSHER.scheduleAtFixedRate(this::clear, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private void clear() {
+        lock.lock();
+        try {
+            itemsMap.clear();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public void set(K key, V value) {
-        itemsMap.put(key, value);
+        lock.lock();
+        try {
+            itemsMap.put(key, value);
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public V get(K key) {
-        return itemsMap.get(key);
+        lock.lock();
+        try {
+            return itemsMap.get(key);
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public void flushCache() {
-        itemsMap.clear();
-        this.timer.scheduleAtFixedRate(timerTask, Date.from(Instant.now()), this.flushInterval);
+        lock.lock();
+        try {
+            itemsMap.clear();
+            scheduleFlush();
+        } finally {
+            lock.unlock();
+        }
     }
 }
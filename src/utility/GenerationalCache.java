@@ -1,7 +1,8 @@
 package utility;
 
-import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class GenerationalCache<K, V> implements Cache<K, V> {
     private static class CacheItem<K, V> {
@@ -26,13 +27,7 @@ public class GenerationalCache<K, V> implements Cache<K, V> {
     private final int capacity;
     private final long flushInterval;
     private int readCount = 0;
-    private final Timer timer = new Timer();
-    private final TimerTask timerTask = new TimerTask() {
-        @Override
-        public void run() {
-            cacheItemsMap.clear();
-        }
-    };
+    private final ReentrantLock lock = new ReentrantLock();
 
     public GenerationalCache(int capacity, long flushInterval) {
         this.capacity = capacity;
@@ -41,7 +36,7 @@ public class GenerationalCache<K, V> implements Cache<K, V> {
         this.currentReads = new int[this.capacity];
         this.previousReads = new int[this.capacity];
         createPriorityQueue();
-        this.timer.scheduleAtFixedRate(timerTask, Date.from(Instant.now()), this.flushInterval);
+        Schedulers.CACHE_FLUSHER.scheduleAtFixedRate(this::flushCache, this.flushInterval, this.flushInterval, TimeUnit.MILLISECONDS);
     }
 
     private void createPriorityQueue() {
@@ -53,19 +48,24 @@ public class GenerationalCache<K, V> implements Cache<K, V> {
     }
 
     public void set(K key, V value) {
-        CacheItem<K, V> item = cacheItemsMap.get(key);
-        if (item != null) {
-            item.value = value;
-            return;
-        }
-
-        if (cacheItemsMap.size() == capacity) {
-            evict();
+        lock.lock();
+        try {
+            CacheItem<K, V> item = cacheItemsMap.get(key);
+            if (item != null) {
+                item.value = value;
+                return;
+            }
+
+            if (cacheItemsMap.size() == capacity) {
+                evict();
+            }
+
+            item = new CacheItem<>(key, value);
+            cacheItemsMap.put(key, item);
+            readsPriorityQueue.add(item);
+        } finally {
+            lock.unlock();
         }
-
-        item = new CacheItem<>(key, value);
-        cacheItemsMap.put(key, item);
-        readsPriorityQueue.add(item);
     }
 
     private void evict() {
@@ -74,27 +74,37 @@ public class GenerationalCache<K, V> implements Cache<K, V> {
     }
 
     public V get(K key) {
-        if (readCount == GENERATION) {
-            changeGeneration();
-        }
-
-        readCount++;
-
-        CacheItem<K, V> item = cacheItemsMap.get(key);
-        if (item == null) {
-            return null;
+        lock.lock();
+        try {
+            if (readCount == GENERATION) {
+                changeGeneration();
+            }
+
+            readCount++;
+
+            CacheItem<K, V> item = cacheItemsMap.get(key);
+            if (item == null) {
+                return null;
+            }
+
+            currentReads[item.index]++;
+            readsPriorityQueue.remove(item);
+            readsPriorityQueue.add(item);
+
+            return item.value;
+        } finally {
+            lock.unlock();
         }
-
-        currentReads[item.index]++;
-        readsPriorityQueue.remove(item);
-        readsPriorityQueue.add(item);
-
-        return item.value;
     }
 
     @Override
     public void flushCache() {
-        cacheItemsMap.clear();
+        lock.lock();
+        try {
+            cacheItemsMap.clear();
+        } finally {
+            lock.unlock();
+        }
     }
 
     private void changeGeneration() {
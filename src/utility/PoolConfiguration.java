@@ -0,0 +1,205 @@
+package utility;
+
+import java.util.*;
+
+public class PoolConfiguration {
+    public enum WARM_UP_MODE { SERIAL, PARALLEL, LAZY }
+
+    private static final String DEFAULT_POOL_NAME = "DatabaseConnectionPool";
+    private static final int DEFAULT_MAX_ACTIVE = 10;
+    private static final int DEFAULT_MIN_IDLE = 2;
+    private static final long DEFAULT_ACQUIRE_TIMEOUT = 30000; //30s
+    private static final int DEFAULT_GROWTH_STEP = 1;
+    private static final long DEFAULT_IDLE_TIMEOUT = 600000; //10min
+    private static final long DEFAULT_MAX_LIFETIME = 1800000; //30min
+    private static final long DEFAULT_KEEP_ALIVE_TIME = 600000; //10min
+    private static final long DEFAULT_VALIDATION_WINDOW = 500; //0.5s
+    private static final int DEFAULT_WARM_UP_THREADS = 4;
+    private static final long DEFAULT_HOUSEKEEPING_PERIOD = 30000; //30s
+    private static final long DEFAULT_LEAK_DETECTION_THRESHOLD = 1800000; //30min
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    String poolName;
+    int maxActive;
+    int minIdle;
+    long acquireTimeout;
+    int growthStep;
+    long idleTimeout;
+    long maxLifetime;
+    long keepAliveTime;
+    long validationWindow;
+    WARM_UP_MODE warmUpMode;
+    int warmUpThreads;
+    List<String> warmUpStatements;
+    boolean registerMBean;
+    long housekeepingPeriod;
+    long leakDetectionThreshold;
+    double leakTraceSampleRate;
+    boolean reclaimLeakedConnections;
+    int[] reservedCapacity;
+    int statementCacheSize;
+
+    public PoolConfiguration(Properties properties) {
+        this.poolName = properties.getProperty("poolName", DEFAULT_POOL_NAME);
+        this.maxActive = getInt(properties, "maxActive", DEFAULT_MAX_ACTIVE);
+        //a small idle floor lets the pool grow on demand and shrink back after idleTimeout, set minIdle=maxActive for a fixed size
+        this.minIdle = getInt(properties, "minIdle", Math.min(DEFAULT_MIN_IDLE, this.maxActive));
+        this.acquireTimeout = getLong(properties, "acquireTimeout", DEFAULT_ACQUIRE_TIMEOUT);
+        this.growthStep = getInt(properties, "growthStep", DEFAULT_GROWTH_STEP);
+        this.idleTimeout = getLong(properties, "idleTimeout", DEFAULT_IDLE_TIMEOUT);
+        this.maxLifetime = getLong(properties, "maxLifetime", DEFAULT_MAX_LIFETIME);
+        this.keepAliveTime = getLong(properties, "keepAliveTime", DEFAULT_KEEP_ALIVE_TIME);
+        this.validationWindow = getLong(properties, "validationWindow", DEFAULT_VALIDATION_WINDOW);
+        this.warmUpMode = WARM_UP_MODE.valueOf(properties.getProperty("warmUpMode", WARM_UP_MODE.PARALLEL.name()).trim().toUpperCase());
+        this.warmUpThreads = getInt(properties, "warmUpThreads", DEFAULT_WARM_UP_THREADS);
+        this.warmUpStatements = getList(properties, "warmUpStatements");
+        this.registerMBean = Boolean.parseBoolean(properties.getProperty("registerMBean", "true").trim());
+        this.housekeepingPeriod = getLong(properties, "housekeepingPeriod", DEFAULT_HOUSEKEEPING_PERIOD);
+        this.leakDetectionThreshold = getLong(properties, "leakDetectionThreshold", DEFAULT_LEAK_DETECTION_THRESHOLD);
+        this.leakTraceSampleRate = Double.parseDouble(properties.getProperty("leakTraceSampleRate", "0").trim());
+        this.reclaimLeakedConnections = Boolean.parseBoolean(properties.getProperty("reclaimLeakedConnections", "false").trim());
+        this.reservedCapacity = new int[ConnectionPriority.values().length];
+        for (ConnectionPriority priority : ConnectionPriority.values()) {
+            this.reservedCapacity[priority.ordinal()] = getInt(properties, priority.getReservedProperty(), 0);
+        }
+        this.statementCacheSize = getInt(properties, "statementCacheSize", DEFAULT_STATEMENT_CACHE_SIZE);
+        validate();
+    }
+
+    private void validate() {
+        if (maxActive < 1) {
+            throw new IllegalArgumentException("maxActive must be at least 1");
+        }
+        if (minIdle < 0 || minIdle > maxActive) {
+            throw new IllegalArgumentException("minIdle must be between 0 and maxActive");
+        }
+        if (growthStep < 1) {
+            throw new IllegalArgumentException("growthStep must be at least 1");
+        }
+        if (warmUpThreads < 1) {
+            throw new IllegalArgumentException("warmUpThreads must be at least 1");
+        }
+        if (housekeepingPeriod < 1) {
+            throw new IllegalArgumentException("housekeepingPeriod must be at least 1");
+        }
+        if (leakTraceSampleRate < 0 || leakTraceSampleRate > 1) {
+            throw new IllegalArgumentException("leakTraceSampleRate must be between 0 and 1");
+        }
+
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("statementCacheSize can not be negative");
+        }
+
+        int reserved = 0;
+        for (int capacity : reservedCapacity) {
+            if (capacity < 0) {
+                throw new IllegalArgumentException("Reserved capacity can not be negative");
+            }
+            reserved += capacity;
+        }
+        if (reserved > maxActive) {
+            throw new IllegalArgumentException("Reserved capacity of all priorities exceeds maxActive");
+        }
+    }
+
+    private static int getInt(Properties properties, String name, int defaultValue) {
+        String value = properties.getProperty(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static long getLong(Properties properties, String name, long defaultValue) {
+        String value = properties.getProperty(name);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    private static List<String> getList(Properties properties, String name) {
+        String value = properties.getProperty(name);
+        if (value == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> values = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.isBlank()) {
+                values.add(item.trim());
+            }
+        }
+        return values;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public long getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public int getGrowthStep() {
+        return growthStep;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public long getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    public long getKeepAliveTime() {
+        return keepAliveTime;
+    }
+
+    public long getValidationWindow() {
+        return validationWindow;
+    }
+
+    public WARM_UP_MODE getWarmUpMode() {
+        return warmUpMode;
+    }
+
+    public int getWarmUpThreads() {
+        return warmUpThreads;
+    }
+
+    public List<String> getWarmUpStatements() {
+        return warmUpStatements;
+    }
+
+    public boolean isRegisterMBean() {
+        return registerMBean;
+    }
+
+    public long getHousekeepingPeriod() {
+        return housekeepingPeriod;
+    }
+
+    public long getLeakDetectionThreshold() {
+        return leakDetectionThreshold;
+    }
+
+    public double getLeakTraceSampleRate() {
+        return leakTraceSampleRate;
+    }
+
+    public boolean isReclaimLeakedConnections() {
+        return reclaimLeakedConnections;
+    }
+
+    public int getReservedCapacity(ConnectionPriority priority) {
+        return reservedCapacity[priority.ordinal()];
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+}
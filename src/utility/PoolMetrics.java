@@ -0,0 +1,217 @@
+package utility;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PoolMetrics implements PoolMetricsMXBean {
+    private final DatabaseConnectionPool pool;
+    private final LatencyHistogram acquireWait = new LatencyHistogram();
+    private final LatencyHistogram connectionCreation = new LatencyHistogram();
+    private final LatencyHistogram connectionHold = new LatencyHistogram();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final LongAdder creationFailures = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LongAdder leaksReclaimed = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    PoolMetrics(DatabaseConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    void recordAcquire(long nanos) {
+        acquireWait.record(nanos);
+    }
+
+    void recordAcquireTimeout() {
+        acquireTimeouts.increment();
+    }
+
+    void recordConnectionCreated(long nanos) {
+        connectionCreation.record(nanos);
+    }
+
+    void recordCreationFailure() {
+        creationFailures.increment();
+    }
+
+    void recordValidationFailure() {
+        validationFailures.increment();
+    }
+
+    void recordLeak() {
+        leaksDetected.increment();
+    }
+
+    void recordLeakReclaimed() {
+        leaksReclaimed.increment();
+    }
+
+    void recordStatementCacheHit() {
+        statementCacheHits.increment();
+    }
+
+    void recordStatementCacheMiss() {
+        statementCacheMisses.increment();
+    }
+
+    void recordConnectionHold(long nanos) {
+        connectionHold.record(nanos);
+    }
+
+    public LatencyHistogram getAcquireWait() {
+        return acquireWait;
+    }
+
+    public LatencyHistogram getConnectionCreation() {
+        return connectionCreation;
+    }
+
+    public LatencyHistogram getConnectionHold() {
+        return connectionHold;
+    }
+
+    @Override
+    public String getPoolName() {
+        return pool.getPoolName();
+    }
+
+    @Override
+    public int getMaxActive() {
+        return pool.getConfiguration().getMaxActive();
+    }
+
+    @Override
+    public int getTotalConnections() {
+        return pool.totalConnections();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return pool.activeConnections();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return pool.idleConnections();
+    }
+
+    @Override
+    public int getPendingThreads() {
+        return pool.pendingThreads();
+    }
+
+    @Override
+    public double getUtilization() {
+        return (double) getActiveConnections() / getMaxActive();
+    }
+
+    @Override
+    public long getAcquireCount() {
+        return acquireWait.getCount();
+    }
+
+    @Override
+    public long getAcquireTimeouts() {
+        return acquireTimeouts.sum();
+    }
+
+    @Override
+    public double getAcquireWaitMeanMillis() {
+        return acquireWait.getMeanMillis();
+    }
+
+    @Override
+    public double getAcquireWaitP99Millis() {
+        return acquireWait.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getAcquireWaitMaxMillis() {
+        return acquireWait.getMaxMillis();
+    }
+
+    @Override
+    public Map<String, Long> getAcquireWaitHistogram() {
+        return acquireWait.getBuckets();
+    }
+
+    @Override
+    public long getConnectionsCreated() {
+        return connectionCreation.getCount();
+    }
+
+    @Override
+    public long getConnectionCreationFailures() {
+        return creationFailures.sum();
+    }
+
+    @Override
+    public double getConnectionCreationMeanMillis() {
+        return connectionCreation.getMeanMillis();
+    }
+
+    @Override
+    public double getConnectionCreationMaxMillis() {
+        return connectionCreation.getMaxMillis();
+    }
+
+    @Override
+    public long getValidationFailures() {
+        return validationFailures.sum();
+    }
+
+    @Override
+    public double getConnectionHoldMeanMillis() {
+        return connectionHold.getMeanMillis();
+    }
+
+    @Override
+    public double getConnectionHoldP99Millis() {
+        return connectionHold.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getConnectionHoldMaxMillis() {
+        return connectionHold.getMaxMillis();
+    }
+
+    @Override
+    public Map<String, Long> getConnectionHoldHistogram() {
+        return connectionHold.getBuckets();
+    }
+
+    @Override
+    public long getLeaksDetected() {
+        return leaksDetected.sum();
+    }
+
+    @Override
+    public long getLeaksReclaimed() {
+        return leaksReclaimed.sum();
+    }
+
+    @Override
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    @Override
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    @Override
+    public double getStatementCacheHitRatio() {
+        long hits = getStatementCacheHits();
+        long total = hits + getStatementCacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public List<String> getSuspectedLeaks() {
+        return pool.getSuspectedLeaks();
+    }
+}
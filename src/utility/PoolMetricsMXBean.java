@@ -0,0 +1,62 @@
+package utility;
+
+import java.util.List;
+import java.util.Map;
+
+public interface PoolMetricsMXBean {
+    String getPoolName();
+
+    int getMaxActive();
+
+    int getTotalConnections();
+
+    int getActiveConnections();
+
+    int getIdleConnections();
+
+    int getPendingThreads();
+
+    double getUtilization();
+
+    long getAcquireCount();
+
+    long getAcquireTimeouts();
+
+    double getAcquireWaitMeanMillis();
+
+    double getAcquireWaitP99Millis();
+
+    double getAcquireWaitMaxMillis();
+
+    Map<String, Long> getAcquireWaitHistogram();
+
+    long getConnectionsCreated();
+
+    long getConnectionCreationFailures();
+
+    double getConnectionCreationMeanMillis();
+
+    double getConnectionCreationMaxMillis();
+
+    long getValidationFailures();
+
+    double getConnectionHoldMeanMillis();
+
+    double getConnectionHoldP99Millis();
+
+    double getConnectionHoldMaxMillis();
+
+    Map<String, Long> getConnectionHoldHistogram();
+
+    long getLeaksDetected();
+
+    long getLeaksReclaimed();
+
+    long getStatementCacheHits();
+
+    long getStatementCacheMisses();
+
+    double getStatementCacheHitRatio();
+
+    List<String> getSuspectedLeaks();
+}
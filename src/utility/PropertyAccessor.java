@@ -0,0 +1,169 @@
+package utility;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+public class PropertyAccessor {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    //accessors are built once per class and shared by every query mapping it
+    private static final ClassValue<Map<String, PropertyAccessor>> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Map<String, PropertyAccessor> computeValue(Class<?> type) {
+            return createAccessors(type);
+        }
+    };
+
+    private final String name;
+    private final Class<?> type;
+    private final Class<?> declaringClass;
+    private final Function<Object, Object> getter;
+    private final BiConsumer<Object, Object> setter;
+
+    private PropertyAccessor(Field field, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+        this.name = field.getName();
+        this.type = field.getType();
+        this.declaringClass = field.getDeclaringClass();
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    public static Map<String, PropertyAccessor> forClass(Class<?> type) {
+        return ACCESSORS.get(type);
+    }
+
+    private static Map<String, PropertyAccessor> createAccessors(Class<?> type) {
+        MethodHandles.Lookup lookup = lookupIn(type);
+        Map<String, PropertyAccessor> accessors = new LinkedHashMap<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+
+            try {
+                accessors.put(field.getName(), new PropertyAccessor(field, createGetter(lookup, field), createSetter(lookup, field)));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                //fields of classes that are not open to us, e.g. JDK value types, are never mapped
+            }
+        }
+        return Collections.unmodifiableMap(accessors);
+    }
+
+    private static MethodHandles.Lookup lookupIn(Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Function<Object, Object> createGetter(MethodHandles.Lookup lookup, Field field) throws ReflectiveOperationException {
+        Method method = findAccessorMethod(field, "get", field.getType());
+        if (method == null && (field.getType() == boolean.class || field.getType() == Boolean.class)) {
+            method = findAccessorMethod(field, "is", field.getType());
+        }
+        if (method != null && lookup != null) {
+            try {
+                MethodHandle target = lookup.unreflect(method);
+                MethodType instantiated = MethodType.methodType(boxed(field.getType()), field.getDeclaringClass());
+                CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                        GETTER_TYPE, target, instantiated);
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable ignored) {
+                //fall back to the field handle below
+            }
+        }
+
+        MethodHandle handle = unreflectField(lookup, field, true).asType(GETTER_TYPE);
+        return target -> {
+            try {
+                return (Object) handle.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        };
+    }
+
+    private static BiConsumer<Object, Object> createSetter(MethodHandles.Lookup lookup, Field field) throws ReflectiveOperationException {
+        Method method = findAccessorMethod(field, "set", void.class, field.getType());
+        if (method != null && lookup != null) {
+            try {
+                MethodHandle target = lookup.unreflect(method);
+                MethodType instantiated = MethodType.methodType(void.class, field.getDeclaringClass(), boxed(field.getType()));
+                CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                        SETTER_TYPE, target, instantiated);
+                return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable ignored) {
+                //fall back to the field handle below
+            }
+        }
+
+        MethodHandle handle = unreflectField(lookup, field, false).asType(SETTER_TYPE);
+        return (target, value) -> {
+            try {
+                handle.invokeExact(target, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        };
+    }
+
+    private static MethodHandle unreflectField(MethodHandles.Lookup lookup, Field field, boolean getter) throws IllegalAccessException {
+        //final fields can only be written through an accessible Field, just like Field.set
+        if (lookup == null || (!getter && Modifier.isFinal(field.getModifiers()))) {
+            field.setAccessible(true);
+            lookup = MethodHandles.lookup();
+        }
+        return getter ? lookup.unreflectGetter(field) : lookup.unreflectSetter(field);
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    private static Method findAccessorMethod(Field field, String prefix, Class<?> returnType, Class<?>... parameterTypes) {
+        String name = prefix + Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+        try {
+            Method method = field.getDeclaringClass().getDeclaredMethod(name, parameterTypes);
+            return method.getReturnType() == returnType && !Modifier.isStatic(method.getModifiers()) ? method : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public Object get(Object target) {
+        return getter.apply(target);
+    }
+
+    public void set(Object target, Object value) {
+        setter.accept(target, value);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public Class<?> getDeclaringClass() {
+        return declaringClass;
+    }
+}
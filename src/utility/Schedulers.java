@@ -0,0 +1,15 @@
+package utility;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+class Schedulers {
+    static final ScheduledExecutorService CACHE_FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cache-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Schedulers() {
+    }
+}
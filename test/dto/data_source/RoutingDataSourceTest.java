@@ -0,0 +1,98 @@
+package dto.data_source;
+
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import utility.ConnectionPriority;
+import utility.DatabaseConnectionPool;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertThrows;
+
+public class RoutingDataSourceTest {
+    static RoutingDataSource newDataSource(FakeDatabase primary, List<FakeDatabase> replicas, String... pairs) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("url", primary.getUrl());
+        properties.setProperty("registerMBean", "false");
+        properties.setProperty("minIdle", "0");
+        List<String> urls = new ArrayList<>();
+        for (FakeDatabase replica : replicas) {
+            urls.add(replica.getUrl());
+        }
+        properties.setProperty("replicas", String.join(",", urls));
+        for (int i = 0; i < pairs.length; i += 2) {
+            properties.setProperty(pairs[i], pairs[i + 1]);
+        }
+        return new RoutingDataSource(properties);
+    }
+
+    private static long acquires(RoutingDataSource dataSource, int replica) {
+        return dataSource.getReplicaPools().get(replica).getMetrics().getAcquireCount();
+    }
+
+    public static void testWeightedRoundRobinFollowsTheWeights() throws Exception {
+        RoutingDataSource dataSource = newDataSource(FakeDriver.newDatabase(), List.of(FakeDriver.newDatabase(), FakeDriver.newDatabase()),
+                "loadBalancer", "WEIGHTED_ROUND_ROBIN", "replicaWeights", "1,3");
+        try {
+            for (int i = 0; i < 8; i++) {
+                dataSource.releaseConnection(dataSource.getReadConnection(ConnectionPriority.NORMAL));
+            }
+            assertEquals(2L, acquires(dataSource, 0), "reads on the replica with weight 1");
+            assertEquals(6L, acquires(dataSource, 1), "reads on the replica with weight 3");
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    public static void testLeastOutstandingAvoidsTheBusyReplica() throws Exception {
+        RoutingDataSource dataSource = newDataSource(FakeDriver.newDatabase(), List.of(FakeDriver.newDatabase(), FakeDriver.newDatabase()));
+        try {
+            assertEquals(RoutingDataSource.LOAD_BALANCER.LEAST_OUTSTANDING, dataSource.getLoadBalancer(), "default load balancer");
+            Connection held = dataSource.getReadConnection(ConnectionPriority.NORMAL);
+            int busy = acquires(dataSource, 0) == 1 ? 0 : 1;
+            for (int i = 0; i < 4; i++) {
+                dataSource.releaseConnection(dataSource.getReadConnection(ConnectionPriority.NORMAL));
+            }
+            assertEquals(1L, acquires(dataSource, busy), "reads on the replica holding a connection");
+            assertEquals(4L, acquires(dataSource, 1 - busy), "reads on the idle replica");
+
+            //once the held connection is back both replicas are idle and share the reads again
+            dataSource.releaseConnection(held);
+            for (int i = 0; i < 4; i++) {
+                dataSource.releaseConnection(dataSource.getReadConnection(ConnectionPriority.NORMAL));
+            }
+            assertEquals(3L, acquires(dataSource, busy), "reads on the formerly busy replica");
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    public static void testUnavailableReplicaFallsBackToThePrimary() throws Exception {
+        FakeDatabase primary = FakeDriver.newDatabase();
+        FakeDatabase replica = FakeDriver.newDatabase();
+        RoutingDataSource dataSource = newDataSource(primary, List.of(replica));
+        try {
+            replica.failNextConnects(1);
+            Connection connection = dataSource.getReadConnection(ConnectionPriority.NORMAL);
+            DatabaseConnectionPool primaryPool = dataSource.getDcp();
+            assertEquals(1, primaryPool.getMetrics().getActiveConnections(), "read served by the primary");
+            dataSource.releaseConnection(connection);
+            assertEquals(0, primaryPool.getMetrics().getActiveConnections(), "primary connections after release");
+
+            //the failed attempt left no outstanding read behind, the recovered replica serves the next one
+            dataSource.releaseConnection(dataSource.getReadConnection(ConnectionPriority.NORMAL));
+            assertEquals(1L, acquires(dataSource, 0), "reads on the recovered replica");
+            assertEquals(1, replica.getOpenedConnections(), "replica connections");
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    public static void testReplicaIsRequired() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> newDataSource(FakeDriver.newDatabase(), List.of()));
+    }
+}
@@ -0,0 +1,60 @@
+package parsers;
+
+import annotations.Insert;
+import annotations.MapKey;
+import annotations.Options;
+import annotations.Select;
+import dto.Mapper;
+import dto.queries.InsertQuery;
+import dto.queries.Query;
+import dto.queries.SelectQuery;
+import session.Item;
+
+import java.util.List;
+import java.util.Map;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertNull;
+import static testsupport.Assert.assertTrue;
+
+public class AnnotatedMapperParserTest {
+    interface ReorderedMapper {
+        @MapKey("id")
+        @Select("SELECT id, name, qty FROM items")
+        Map<Long, Item> itemsById();
+
+        @Options(maxRows = 1, fetchSize = 50)
+        @Select("SELECT id, name, qty FROM items")
+        List<Item> firstItems();
+
+        @Options(useGeneratedKeys = true, keyProperty = "id")
+        @Insert("INSERT INTO items(name, qty) VALUES (#{name}, #{qty})")
+        int insertItem(Item item);
+
+        default int countItems() {
+            return itemsById().size();
+        }
+    }
+
+    public static void testStatementAnnotationIsFoundAfterOtherAnnotations() throws Exception {
+        Mapper mapper = new AnnotatedMapperParser(ReorderedMapper.class).parseMapper();
+
+        Query itemsById = mapper.getQueryById("itemsById");
+        assertEquals(Query.QUERY_TYPE.SELECT, itemsById.getQueryType(), "itemsById type");
+        assertEquals(Item.class, ((SelectQuery) itemsById).getResultType(), "itemsById result type");
+
+        Query firstItems = mapper.getQueryById("firstItems");
+        assertEquals(Query.QUERY_TYPE.SELECT, firstItems.getQueryType(), "firstItems type");
+        assertEquals(1, firstItems.getMaxRows(), "firstItems maxRows");
+        assertEquals(50, firstItems.getFetchSize(), "firstItems fetchSize");
+
+        InsertQuery insertItem = (InsertQuery) mapper.getQueryById("insertItem");
+        assertTrue(insertItem.isUseGeneratedKeys(), "insertItem uses generated keys");
+        assertEquals("id", insertItem.getKeyProperty(), "insertItem key property");
+    }
+
+    public static void testMethodsWithoutStatementAnnotationAreSkipped() throws Exception {
+        Mapper mapper = new AnnotatedMapperParser(ReorderedMapper.class).parseMapper();
+        assertNull(mapper.getQueryById("countItems"), "query for a default method");
+    }
+}
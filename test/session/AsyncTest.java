@@ -0,0 +1,109 @@
+package session;
+
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import testsupport.FakeResult;
+import testsupport.Sessions;
+import utility.LongKeyMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertTrue;
+
+public class AsyncTest {
+    public static void testInFlightLimitBoundsExecutorThreads() throws Exception {
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newCachedThreadPool(r -> {
+            threads.incrementAndGet();
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        AsyncExecutor asyncExecutor = new AsyncExecutor(executor, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch submitted = new CountDownLatch(1);
+        try {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                int n = i;
+                futures.add(asyncExecutor.submit(() -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    submitted.await();
+                    Thread.sleep(2);
+                    running.decrementAndGet();
+                    return n;
+                }));
+            }
+            assertEquals(2, asyncExecutor.getInFlight(), "in flight while the first tasks block");
+            submitted.countDown();
+            int sum = 0;
+            for (CompletableFuture<Integer> future : futures) {
+                sum += future.get(10, TimeUnit.SECONDS);
+            }
+
+            assertEquals(190, sum, "sum of results");
+            assertTrue(peak.get() <= 2, "peak running tasks " + peak.get());
+            assertTrue(threads.get() <= 2, "executor threads created " + threads.get());
+            //the last worker hands its permit back just after completing the last future
+            long deadline = System.currentTimeMillis() + 2000;
+            while (asyncExecutor.getInFlight() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, asyncExecutor.getInFlight(), "in flight after completion");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static void testRejectedTaskFailsItsFutureAndReleasesThePermit() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        AsyncExecutor asyncExecutor = new AsyncExecutor(executor, 1);
+        CompletableFuture<Integer> future = asyncExecutor.submit(() -> 1);
+        assertTrue(future.isCompletedExceptionally(), "future of a rejected task");
+        assertEquals(0, asyncExecutor.getInFlight(), "in flight after rejection");
+    }
+
+    static FakeDatabase database() {
+        FakeDatabase database = FakeDriver.newDatabase();
+        database.onQuery((sql, params) -> FakeResult.of(SqlSessionTest.ITEM_COLUMNS,
+                new Object[]{10L, "bolt", 3}, new Object[]{20L, "nut", 5}));
+        return database;
+    }
+
+    public static void testAsyncSelectsUseTheMapperCacheAndWritesFlushIt() throws Exception {
+        FakeDatabase database = database();
+        SqlSessionFactory factory = Sessions.over(database).mapper(CachedItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            CachedItemMapper mapper = session.getMapper(CachedItemMapper.class);
+            assertEquals(2, mapper.listItemsAsync().get(5, TimeUnit.SECONDS).size(), "rows");
+            assertEquals(2, mapper.listItemsAsync().get(5, TimeUnit.SECONDS).size(), "cached rows");
+            assertEquals(1, database.countEvents("executeQuery"), "queries before the write");
+
+            Item item = new Item("bolt", 4);
+            item.id = 10L;
+            assertEquals(1, mapper.updateItemAsync(item).get(5, TimeUnit.SECONDS), "updated rows");
+            mapper.listItemsAsync().get(5, TimeUnit.SECONDS);
+            assertEquals(2, database.countEvents("executeQuery"), "queries after the flushing write");
+        }
+    }
+
+    public static void testAsyncMapKeySelectReturnsALongKeyMap() throws Exception {
+        FakeDatabase database = database();
+        SqlSessionFactory factory = Sessions.over(database).mapper(CachedItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            Object result = session.getMapper(CachedItemMapper.class).itemsByIdAsync().get(5, TimeUnit.SECONDS);
+            assertTrue(result instanceof LongKeyMap, "result type " + result.getClass().getName());
+            assertEquals("nut", ((LongKeyMap<?>) result).get(20L) instanceof Item row ? row.name : null, "row for key 20");
+        }
+    }
+}
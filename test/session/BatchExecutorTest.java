@@ -0,0 +1,72 @@
+package session;
+
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import testsupport.Sessions;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static testsupport.Assert.assertEquals;
+
+public class BatchExecutorTest {
+    public static void testWritesAreQueuedUntilFlushed() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession(ExecutorType.BATCH)) {
+            for (int i = 0; i < 3; i++) {
+                assertEquals(SqlSession.BATCH_UPDATE_RETURN_VALUE, session.update("updateItem", new Item("item" + i, i)), "queued update count");
+            }
+            assertEquals(0, database.countEvents("executeBatch"), "batches sent before flush");
+
+            List<BatchResult> results = session.flushStatements();
+            assertEquals(1, results.size(), "batch results");
+            assertEquals(3, results.get(0).getParameterObjects().size(), "parameter objects");
+            assertEquals("[1, 1, 1]", Arrays.toString(results.get(0).getUpdateCounts()), "update counts");
+            assertEquals(List.of("executeBatch 3"), database.getEvents().stream().filter(e -> e.startsWith("executeBatch")).toList(), "batches");
+        }
+    }
+
+    public static void testSwitchingStatementFlushesThePreviousBatch() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession(ExecutorType.BATCH, false)) {
+            session.update("updateItem", new Item("a", 1));
+            session.update("updateItem", new Item("b", 2));
+            session.insert("insertItem", new Item("c", 3));
+            assertEquals(1, database.countEvents("executeBatch 2"), "update batch flushed by the insert");
+
+            session.commit();
+            assertEquals(1, database.countEvents("executeBatch 1"), "insert batch flushed by commit");
+            assertEquals(1, database.countEvents("commit"), "commits");
+        }
+    }
+
+    public static void testBatchFlushSizeBoundsQueuedRows() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).setting("batchFlushSize", "2").build();
+        try (SqlSession session = factory.openSession(ExecutorType.BATCH)) {
+            for (int i = 0; i < 5; i++) {
+                session.update("updateItem", new Item("item" + i, i));
+            }
+            assertEquals(2, database.countEvents("executeBatch 2"), "full batches flushed while queueing");
+            session.flushStatements();
+            assertEquals(1, database.countEvents("executeBatch 1"), "remainder flushed explicitly");
+        }
+    }
+
+    public static void testBatchedInsertsReceiveTheirGeneratedKeys() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        database.setNextKey(100);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession(ExecutorType.BATCH)) {
+            Item first = new Item("a", 1);
+            Item second = new Item("b", 2);
+            session.insert("insertItem", first);
+            session.insert("insertItem", second);
+            session.flushStatements();
+            assertEquals(100L, first.id, "first key");
+            assertEquals(101L, second.id, "second key");
+        }
+    }
+}
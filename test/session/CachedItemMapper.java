@@ -0,0 +1,25 @@
+package session;
+
+import annotations.Cache;
+import annotations.MapKey;
+import annotations.Options;
+import annotations.Select;
+import annotations.Update;
+import utility.LongKeyMap;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Cache(memoryStoreEvictionPolicy = "LRU", maxEntriesLocalHeap = 100, timeToLiveSeconds = 3600)
+public interface CachedItemMapper {
+    @Select(value = "SELECT id, name, qty FROM items", useCaching = true)
+    CompletableFuture<List<Item>> listItemsAsync();
+
+    @Select(value = "SELECT id, name, qty FROM items", useCaching = true)
+    @MapKey("id")
+    CompletableFuture<LongKeyMap<Item>> itemsByIdAsync();
+
+    @Update("UPDATE items SET qty = #{qty} WHERE id = #{id}")
+    @Options(flushCache = true)
+    CompletableFuture<Integer> updateItemAsync(Item item);
+}
@@ -0,0 +1,189 @@
+package session;
+
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import testsupport.FakeResult;
+import testsupport.Sessions;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertFalse;
+import static testsupport.Assert.assertNotNull;
+import static testsupport.Assert.assertNull;
+import static testsupport.Assert.assertTrue;
+
+public class CursorPublisherTest {
+    private static FakeDatabase database(int rows) {
+        FakeDatabase database = FakeDriver.newDatabase();
+        List<Object[]> data = new ArrayList<>();
+        for (int i = 1; i <= rows; i++) {
+            data.add(new Object[]{(long) i, "item" + i, i});
+        }
+        database.onQuery((sql, params) -> FakeResult.of(SqlSessionTest.ITEM_COLUMNS, data));
+        return database;
+    }
+
+    //records every signal, rows are only requested by the test itself
+    private static class RecordingSubscriber implements Flow.Subscriber<Item> {
+        final LinkedBlockingQueue<Item> items = new LinkedBlockingQueue<>();
+        final CompletableFuture<Void> terminated = new CompletableFuture<>();
+        volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Item item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            terminated.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            terminated.complete(null);
+        }
+
+        Item take() throws InterruptedException {
+            return items.poll(5, TimeUnit.SECONDS);
+        }
+
+        Throwable awaitError() throws Exception {
+            try {
+                terminated.get(5, TimeUnit.SECONDS);
+                return null;
+            } catch (ExecutionException e) {
+                return e.getCause();
+            }
+        }
+    }
+
+    private static void awaitOpenStatements(FakeDatabase database, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (database.getOpenStatements() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    public static void testRowsAreEmittedOnlyAsTheyAreRequested() throws Exception {
+        FakeDatabase database = database(100);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            session.<Item>selectPublisher("listItems").subscribe(subscriber);
+            Thread.sleep(50);
+            assertEquals(0, database.countEvents("executeQuery"), "queries before any demand");
+
+            subscriber.subscription.request(2);
+            assertEquals("item1", subscriber.take().name, "first row");
+            assertEquals("item2", subscriber.take().name, "second row");
+            Thread.sleep(50);
+            assertTrue(subscriber.items.isEmpty(), "rows emitted beyond the demand");
+            assertEquals(2, database.getRowsFetched(), "rows read for a demand of two");
+
+            subscriber.subscription.request(Long.MAX_VALUE);
+            assertNull(subscriber.awaitError(), "error of the completed publisher");
+            assertEquals(98, subscriber.items.size(), "rows after unbounded demand");
+            assertEquals(100, database.getRowsFetched(), "rows read");
+        }
+    }
+
+    public static void testCancelClosesTheCursorAndReleasesTheConnection() throws Exception {
+        FakeDatabase database = database(100);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class)
+                .dataSource("maxActive", "1").dataSource("acquireTimeout", "200").build();
+        try (SqlSession session = factory.openSession()) {
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            session.<Item>selectPublisher("listItems").subscribe(subscriber);
+            subscriber.subscription.request(1);
+            assertNotNull(subscriber.take(), "first row");
+            assertEquals(1, database.getOpenStatements(), "open statements while streaming");
+
+            subscriber.subscription.cancel();
+            awaitOpenStatements(database, 0);
+            assertEquals(0, database.getOpenStatements(), "open statements after cancel");
+            assertFalse(subscriber.terminated.isDone(), "terminal signal after cancel");
+            //the only pooled connection is back, otherwise this read times out
+            assertEquals(100, session.selectList("listItems").size(), "rows of the next read");
+        }
+    }
+
+    public static void testQueryFailureIsSignalledAsAnError() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        database.onQuery((sql, params) -> {
+            throw new SQLException("table items is locked");
+        });
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            session.<Item>selectPublisher("listItems").subscribe(subscriber);
+            subscriber.subscription.request(1);
+            Throwable error = subscriber.awaitError();
+            assertTrue(error instanceof SQLException, "error " + error);
+            assertEquals("table items is locked", error.getMessage(), "error message");
+            assertEquals(0, database.getOpenStatements(), "open statements after the error");
+        }
+    }
+
+    public static void testNonPositiveRequestIsSignalledAsAnError() throws Exception {
+        FakeDatabase database = database(10);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            session.<Item>selectPublisher("listItems").subscribe(subscriber);
+            subscriber.subscription.request(1);
+            assertNotNull(subscriber.take(), "first row");
+            subscriber.subscription.request(0);
+            assertTrue(subscriber.awaitError() instanceof IllegalArgumentException, "error of request(0)");
+            awaitOpenStatements(database, 0);
+            assertEquals(0, database.getOpenStatements(), "open statements after the error");
+        }
+    }
+
+    public static void testDrainHoldsAnInFlightPermit() throws Exception {
+        FakeDatabase database = database(10);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).setting("asyncMaxInFlight", "1").build();
+        CountDownLatch release = new CountDownLatch(1);
+        try (SqlSession session = factory.openSession()) {
+            RecordingSubscriber subscriber = new RecordingSubscriber() {
+                @Override
+                public void onNext(Item item) {
+                    super.onNext(item);
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            session.<Item>selectPublisher("listItems").subscribe(subscriber);
+            subscriber.subscription.request(1);
+            assertNotNull(subscriber.take(), "first row");
+
+            //the blocked drain owns the only permit, so the async read queues behind it
+            CompletableFuture<List<Item>> read = session.selectListAsync("listItems");
+            Thread.sleep(100);
+            assertFalse(read.isDone(), "async read ran beside the publisher drain");
+
+            release.countDown();
+            assertEquals(10, read.get(5, TimeUnit.SECONDS).size(), "rows of the queued read");
+            subscriber.subscription.cancel();
+        } finally {
+            release.countDown();
+        }
+    }
+}
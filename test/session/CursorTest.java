@@ -0,0 +1,134 @@
+package session;
+
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import testsupport.FakeResult;
+import testsupport.Sessions;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertFalse;
+import static testsupport.Assert.assertTrue;
+
+public class CursorTest {
+    private static FakeDatabase database(int rows) {
+        FakeDatabase database = FakeDriver.newDatabase();
+        List<Object[]> data = new ArrayList<>();
+        for (int i = 1; i <= rows; i++) {
+            data.add(new Object[]{(long) i, "item" + i, i});
+        }
+        database.onQuery((sql, params) -> FakeResult.of(SqlSessionTest.ITEM_COLUMNS, data));
+        return database;
+    }
+
+    public static void testCursorReadsRowsOnDemandWithTheCursorFetchSize() throws Exception {
+        FakeDatabase database = database(1000);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).setting("cursorFetchSize", "50").build();
+        try (SqlSession session = factory.openSession()) {
+            Cursor<Item> cursor = session.selectCursor("listItems");
+            assertTrue(database.getEvents().contains("setFetchSize 50"), "fetch size of the cursor statement");
+            assertEquals(0, database.getRowsFetched(), "rows read before iterating");
+
+            Iterator<Item> iterator = cursor.iterator();
+            assertEquals("item1", iterator.next().name, "first row");
+            assertEquals("item2", iterator.next().name, "second row");
+            assertEquals(2, database.getRowsFetched(), "rows read after two next calls");
+            assertEquals(1, cursor.getCurrentIndex(), "current index");
+            cursor.close();
+        }
+    }
+
+    public static void testStreamReadsOnlyTheRowsItConsumes() throws Exception {
+        FakeDatabase database = database(1000);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession();
+             Stream<Item> stream = session.selectStream("listItems")) {
+            List<Item> firstFive = stream.limit(5).toList();
+            assertEquals(5, firstFive.size(), "rows taken");
+            assertEquals(5, database.getRowsFetched(), "rows read from the result set");
+        }
+    }
+
+    public static void testConsumedCursorClosesItself() throws Exception {
+        FakeDatabase database = database(3);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            int statements = database.getOpenStatements();
+            Cursor<Item> cursor = session.selectCursor("listItems");
+            int rows = 0;
+            for (Item ignored : cursor) {
+                rows++;
+            }
+            assertEquals(3, rows, "rows");
+            assertTrue(cursor.isConsumed(), "cursor consumed");
+            assertFalse(cursor.isOpen(), "cursor open after the last row");
+            assertEquals(statements, database.getOpenStatements(), "open statements");
+        }
+    }
+
+    public static void testEarlyCloseStopsIterationAndClosesTheStatement() throws Exception {
+        FakeDatabase database = database(100);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            int statements = database.getOpenStatements();
+            Cursor<Item> cursor = session.selectCursor("listItems");
+            Iterator<Item> iterator = cursor.iterator();
+            iterator.next();
+            iterator.next();
+            cursor.close();
+
+            assertFalse(iterator.hasNext(), "rows after close");
+            assertFalse(cursor.isConsumed(), "cursor closed early counts as consumed");
+            assertEquals(2, database.getRowsFetched(), "rows read");
+            assertEquals(statements, database.getOpenStatements(), "open statements after close");
+            assertEquals(100, session.selectList("listItems").size(), "session usable after closing the cursor");
+        }
+    }
+
+    public static void testFailingResultSetCloseStillClosesTheStatement() throws Exception {
+        FakeDatabase database = database(10);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            int statements = database.getOpenStatements();
+            Cursor<Item> cursor = session.selectCursor("listItems");
+            cursor.iterator().next();
+            database.setFailResultSetClose(true);
+            cursor.close();
+            database.setFailResultSetClose(false);
+
+            assertFalse(cursor.isOpen(), "cursor open");
+            assertEquals(statements, database.getOpenStatements(), "open statements after a failed result set close");
+        }
+    }
+
+    public static void testClosingTheStreamReleasesTheReadConnection() throws Exception {
+        FakeDatabase primary = database(10);
+        FakeDatabase replica = database(10);
+        //a replica connection that is not handed back makes the next read time out and fall back to the primary
+        SqlSessionFactory factory = Sessions.over(primary).replicas(replica).mapper(ItemMapper.class)
+                .dataSource("maxActive", "1").dataSource("acquireTimeout", "200").build();
+        try (SqlSession session = factory.openSession()) {
+            try (Stream<Item> stream = session.selectStream("listItems")) {
+                assertEquals("item1", stream.findFirst().map(item -> item.name).orElse(null), "first row");
+            }
+            assertEquals(10, session.selectList("listItems").size(), "rows of the next read");
+        }
+        assertEquals(2, replica.countEvents("executeQuery"), "reads on the replica");
+        assertEquals(0, primary.countEvents("executeQuery"), "reads on the primary");
+    }
+
+    public static void testClosingTheSessionClosesOpenCursors() throws Exception {
+        FakeDatabase database = database(10);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        Cursor<Item> cursor;
+        try (SqlSession session = factory.openSession()) {
+            cursor = session.selectCursor("listItems");
+            cursor.iterator().next();
+        }
+        assertFalse(cursor.isOpen(), "cursor open after the session closed");
+    }
+}
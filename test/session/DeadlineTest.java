@@ -0,0 +1,76 @@
+package session;
+
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import testsupport.FakeResult;
+import testsupport.Sessions;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertThrows;
+import static testsupport.Assert.assertTrue;
+
+public class DeadlineTest {
+    static FakeDatabase database(long queryDelayMillis) {
+        FakeDatabase database = FakeDriver.newDatabase();
+        database.setQueryDelayMillis(queryDelayMillis);
+        database.onQuery((sql, params) -> FakeResult.of(SqlSessionTest.ITEM_COLUMNS, new Object[]{1L, "bolt", 3}));
+        return database;
+    }
+
+    public static void testWatchdogCancelsAStatementAtTheDeadline() throws Exception {
+        FakeDatabase database = database(5000);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            session.withTimeout(Duration.ofMillis(150));
+            long start = System.nanoTime();
+            assertThrows(SQLException.class, () -> session.selectList("listItems"));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(elapsedMillis < 2000, "cancelled after " + elapsedMillis + "ms");
+        }
+        assertEquals(1, database.countEvents("cancel"), "statement cancels");
+        assertTrue(database.getEvents().contains("setQueryTimeout 1"), "query timeout rounded up to the deadline");
+    }
+
+    public static void testExpiredDeadlineFailsBeforeTheStatementRuns() throws Exception {
+        FakeDatabase database = database(0);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            session.withDeadline(Instant.now().minusMillis(1));
+            assertThrows(SQLTimeoutException.class, () -> session.selectList("listItems"));
+        }
+        assertEquals(0, database.countEvents("executeQuery"), "queries sent past the deadline");
+    }
+
+    public static void testClearedDeadlineResetsTheCachedStatementTimeout() throws Exception {
+        FakeDatabase database = database(0);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).dataSource("maxActive", "1").build();
+        try (SqlSession session = factory.openSession()) {
+            session.withTimeout(Duration.ofSeconds(30)).selectList("listItems");
+            session.clearDeadline();
+            session.selectList("listItems");
+        }
+        List<String> timeouts = database.getEvents().stream().filter(e -> e.startsWith("setQueryTimeout")).toList();
+        assertEquals(List.of("setQueryTimeout 30", "setQueryTimeout 0"), timeouts, "query timeouts");
+        assertEquals(0, database.countEvents("cancel"), "statement cancels");
+    }
+
+    public static void testCallDeadlineTightensButNeverExtendsTheSessionDeadline() throws Exception {
+        FakeDatabase database = database(0);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            Instant sessionDeadline = Instant.now().plusSeconds(60);
+            session.withDeadline(sessionDeadline);
+
+            Instant tighter = Instant.now().plusSeconds(5);
+            assertEquals(tighter, session.withDeadline(tighter, session::getDeadline), "tighter call deadline");
+            assertEquals(sessionDeadline, session.withDeadline(Instant.now().plusSeconds(600), session::getDeadline), "looser call deadline");
+            assertEquals(sessionDeadline, session.getDeadline(), "session deadline after the calls");
+        }
+    }
+}
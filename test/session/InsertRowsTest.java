@@ -0,0 +1,58 @@
+package session;
+
+import exceptions.IbatisException;
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import testsupport.Sessions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertThrows;
+import static testsupport.Assert.assertTrue;
+
+public class InsertRowsTest {
+    static List<Item> items(int count) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new Item("item" + i, i));
+        }
+        return items;
+    }
+
+    public static void testCollectionInsertIsChunkedIntoMultiRowStatements() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).setting("insertChunkSize", "2").build();
+        try (SqlSession session = factory.openSession()) {
+            assertEquals(5, session.getMapper(ItemMapper.class).insertItems(items(5)), "inserted rows");
+        }
+        List<String> updates = database.getEvents().stream().filter(e -> e.startsWith("executeUpdate")).toList();
+        assertEquals(3, updates.size(), "statements for 5 rows in chunks of 2: " + updates);
+        assertTrue(updates.get(0).contains("VALUES (?, ?),(?, ?) [item0, 0, item1, 1]"), "first chunk: " + updates.get(0));
+        assertTrue(updates.get(2).contains("VALUES (?, ?) [item4, 4]"), "last chunk: " + updates.get(2));
+    }
+
+    public static void testEveryRowOfAKeyedCollectionInsertGetsItsKey() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        database.setNextKey(100);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        List<Item> items = items(4);
+        try (SqlSession session = factory.openSession()) {
+            assertEquals(4, session.insert("insertItemsWithKeys", items), "inserted rows");
+        }
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(100L + i, items.get(i).id, "key of row " + i);
+        }
+        assertEquals(4, database.countEvents("executeUpdate"), "one statement per keyed row");
+    }
+
+    public static void testMissingGeneratedKeyFailsTheInsert() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        database.onUpdate((sql, params) -> 0);
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            assertThrows(IbatisException.class, () -> session.insert("insertItem", new Item("a", 1)));
+        }
+    }
+}
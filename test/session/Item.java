@@ -0,0 +1,15 @@
+package session;
+
+public class Item {
+    public long id;
+    public String name;
+    public int qty;
+
+    public Item() {
+    }
+
+    public Item(String name, int qty) {
+        this.name = name;
+        this.qty = qty;
+    }
+}
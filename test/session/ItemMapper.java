@@ -0,0 +1,49 @@
+package session;
+
+import annotations.Insert;
+import annotations.MapKey;
+import annotations.Options;
+import annotations.Select;
+import annotations.Update;
+
+import utility.LongKeyMap;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ItemMapper {
+    @Select("SELECT id, name, qty FROM items WHERE id = #{id}")
+    Item getItem(long id);
+
+    @Select("SELECT id, name, qty FROM items")
+    List<Item> listItems();
+
+    @Select("SELECT id, name, qty FROM items")
+    @Options(maxRows = 1, fetchSize = 50)
+    List<Item> firstItems();
+
+    @Select("SELECT id, name, qty FROM items")
+    @MapKey("id")
+    Map<Long, Item> itemsById();
+
+    @Select("SELECT id, name, qty FROM items")
+    @MapKey("id")
+    LongKeyMap<Item> itemsByLongId();
+
+    @Select("SELECT id, name, qty FROM items")
+    void eachItem(ResultHandler<Item> handler);
+
+    @Insert("INSERT INTO items(name, qty) VALUES (#{name}, #{qty})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insertItem(Item item);
+
+    @Insert("INSERT INTO items(name, qty) VALUES (#{name}, #{qty})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insertItemsWithKeys(List<Item> items);
+
+    @Insert("INSERT INTO items(name, qty) VALUES (#{name}, #{qty})")
+    int insertItems(List<Item> items);
+
+    @Update("UPDATE items SET qty = #{qty} WHERE id = #{id}")
+    int updateItem(Item item);
+}
@@ -0,0 +1,85 @@
+package session;
+
+import exceptions.IbatisException;
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import testsupport.FakeResult;
+import testsupport.Sessions;
+
+import java.util.List;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertThrows;
+import static testsupport.Assert.assertTrue;
+
+public class PagingTest {
+    static FakeDatabase database() {
+        FakeDatabase database = FakeDriver.newDatabase();
+        database.onQuery((sql, params) -> FakeResult.of(SqlSessionTest.ITEM_COLUMNS, new Object[]{7L, "bolt", 3}));
+        return database;
+    }
+
+    static String lastQuery(FakeDatabase database) {
+        List<String> queries = database.getEvents().stream().filter(e -> e.startsWith("executeQuery ")).toList();
+        return queries.get(queries.size() - 1).substring("executeQuery ".length());
+    }
+
+    public static void testOffsetPagesBindLimitAndOffset() throws Exception {
+        FakeDatabase database = database();
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            RowBounds page = new RowBounds(0, 20);
+            session.selectList("listItems", null, page);
+            assertEquals("SELECT id, name, qty FROM items LIMIT ? OFFSET ? [20, 0]", lastQuery(database), "first page");
+
+            session.selectList("listItems", null, page.nextPage());
+            assertEquals("SELECT id, name, qty FROM items LIMIT ? OFFSET ? [20, 20]", lastQuery(database), "second page");
+        }
+        assertEquals(1, database.countEvents("prepare "), "pages share one cached statement");
+    }
+
+    public static void testKeysetPagesSeekPastTheLastKey() throws Exception {
+        FakeDatabase database = database();
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            List<Item> first = session.selectList("listItems", null, RowBounds.keyset("id", null, 10));
+            assertEquals("SELECT * FROM (SELECT id, name, qty FROM items) keyset_page ORDER BY id LIMIT ? [10]", lastQuery(database), "first page");
+
+            session.selectList("listItems", null, RowBounds.keyset("id", null, 10).after(first.get(0).id));
+            assertEquals("SELECT * FROM (SELECT id, name, qty FROM items) keyset_page WHERE id > ? ORDER BY id LIMIT ? [7, 10]", lastQuery(database), "next page");
+
+            session.selectList("listItems", null, RowBounds.keysetDescending("id", 7L, 5));
+            assertEquals("SELECT * FROM (SELECT id, name, qty FROM items) keyset_page WHERE id < ? ORDER BY id DESC LIMIT ? [7, 5]", lastQuery(database), "descending page");
+        }
+    }
+
+    public static void testNextPageOfKeysetBoundsIsRejected() {
+        RowBounds offsetPage = new RowBounds(20, 20).nextPage();
+        assertEquals(40, offsetPage.getOffset(), "offset of the next offset page");
+
+        RowBounds keysetPage = RowBounds.keyset("id", 7L, 20);
+        IllegalStateException e = assertThrows(IllegalStateException.class, keysetPage::nextPage);
+        assertTrue(e.getMessage().contains("after(lastKey)"), "message: " + e.getMessage());
+        assertEquals(9L, keysetPage.after(9L).getLastKey(), "key of the page after");
+    }
+
+    public static void testQualifiedKeyColumnIsReducedToTheColumnName() throws Exception {
+        FakeDatabase database = database();
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            session.selectList("listItems", null, RowBounds.keyset("i.id", 3L, 10));
+            assertEquals("SELECT * FROM (SELECT id, name, qty FROM items) keyset_page WHERE id > ? ORDER BY id LIMIT ? [3, 10]", lastQuery(database), "qualified key");
+        }
+    }
+
+    public static void testInvalidOrMissingKeyColumnIsRejected() throws Exception {
+        FakeDatabase database = database();
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            assertThrows(IllegalArgumentException.class, () -> session.selectList("listItems", null, RowBounds.keyset("id; DROP TABLE items", null, 10)));
+            assertThrows(IllegalArgumentException.class, () -> session.selectList("listItems", null, RowBounds.keyset("a.b.id", null, 10)));
+            assertThrows(IbatisException.class, () -> session.selectList("listItems", null, RowBounds.keyset(null, 10)));
+        }
+        assertEquals(0, database.countEvents("executeQuery"), "queries sent for rejected pages");
+    }
+}
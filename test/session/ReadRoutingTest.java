@@ -0,0 +1,80 @@
+package session;
+
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import testsupport.FakeResult;
+import testsupport.Sessions;
+
+import java.util.concurrent.TimeUnit;
+
+import static testsupport.Assert.assertEquals;
+
+public class ReadRoutingTest {
+    private static FakeDatabase database() {
+        FakeDatabase database = FakeDriver.newDatabase();
+        database.onQuery((sql, params) -> FakeResult.of(SqlSessionTest.ITEM_COLUMNS, new Object[]{1L, "bolt", 3}));
+        return database;
+    }
+
+    public static void testAutoCommitReadsGoToTheReplica() throws Exception {
+        FakeDatabase primary = database();
+        FakeDatabase replica = database();
+        SqlSessionFactory factory = Sessions.over(primary).replicas(replica).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            session.selectList("listItems");
+            session.selectList("listItems");
+        }
+        assertEquals(2, replica.countEvents("executeQuery"), "reads on the replica");
+        assertEquals(0, primary.countEvents("executeQuery"), "reads on the primary");
+    }
+
+    public static void testReadsInsideATransactionGoToThePrimary() throws Exception {
+        FakeDatabase primary = database();
+        FakeDatabase replica = database();
+        SqlSessionFactory factory = Sessions.over(primary).replicas(replica).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession(false)) {
+            session.selectList("listItems");
+            session.commit();
+        }
+        assertEquals(1, primary.countEvents("executeQuery"), "reads on the primary");
+        assertEquals(0, replica.countEvents("executeQuery"), "reads on the replica");
+    }
+
+    public static void testReadsRightAfterAWriteStayOnThePrimary() throws Exception {
+        FakeDatabase primary = database();
+        FakeDatabase replica = database();
+        SqlSessionFactory factory = Sessions.over(primary).replicas(replica).mapper(ItemMapper.class)
+                .dataSource("readYourWritesWindow", "200").build();
+        try (SqlSession session = factory.openSession()) {
+            session.update("updateItem", new Item("bolt", 4));
+            session.selectList("listItems");
+            assertEquals(1, primary.countEvents("executeQuery"), "read inside the window");
+
+            TimeUnit.MILLISECONDS.sleep(250);
+            session.selectList("listItems");
+            assertEquals(1, replica.countEvents("executeQuery"), "read after the window");
+        }
+    }
+
+    public static void testReadsFallBackToThePrimaryWhenTheReplicaFails() throws Exception {
+        FakeDatabase primary = database();
+        FakeDatabase replica = database();
+        replica.failNextConnects(1);
+        SqlSessionFactory factory = Sessions.over(primary).replicas(replica).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            assertEquals(1, session.selectList("listItems").size(), "rows read through the fallback");
+        }
+        assertEquals(1, primary.countEvents("executeQuery"), "reads on the primary");
+    }
+
+    public static void testManagedSessionReadsFromTheReplicaBeforeItBorrowsAConnection() throws Exception {
+        FakeDatabase primary = database();
+        FakeDatabase replica = database();
+        SqlSessionFactory factory = Sessions.over(primary).replicas(replica).mapper(ItemMapper.class).transactionManager("MANAGED").build();
+        try (SqlSession session = factory.openSession()) {
+            session.selectList("listItems");
+        }
+        assertEquals(1, replica.countEvents("executeQuery"), "reads on the replica");
+        assertEquals(0, primary.getOpenedConnections(), "primary connections opened");
+    }
+}
@@ -0,0 +1,69 @@
+package session;
+
+import dto.queries.SelectQuery;
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import testsupport.FakeResult;
+import testsupport.Sessions;
+
+import java.sql.Types;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertNotNull;
+import static testsupport.Assert.assertNull;
+import static testsupport.Assert.assertTrue;
+
+public class RowMapperCacheTest {
+    static CompiledRowMapper<Item> mapper() throws Exception {
+        return new CompiledRowMapper<>(Item.class.getDeclaredConstructor(), new utility.PropertyAccessor[0], null);
+    }
+
+    public static void testLeastRecentlyUsedShapeIsEvicted() throws Exception {
+        RowMapperCache cache = new RowMapperCache(2);
+        CompiledRowMapper<Item> a = mapper();
+        cache.putIfAbsent("a", a);
+        cache.putIfAbsent("b", mapper());
+        assertEquals(a, cache.get("a"), "mapper for a");
+        cache.putIfAbsent("c", mapper());
+
+        assertEquals(2, cache.size(), "size");
+        assertNotNull(cache.get("a"), "recently used shape a");
+        assertNull(cache.get("b"), "least recently used shape b");
+        assertNotNull(cache.get("c"), "new shape c");
+    }
+
+    public static void testConcurrentlyCompiledMapperLosesToTheCachedOne() throws Exception {
+        RowMapperCache cache = new RowMapperCache();
+        CompiledRowMapper<Item> first = mapper();
+        assertEquals(first, cache.putIfAbsent("shape", first), "first mapper");
+        assertEquals(first, cache.putIfAbsent("shape", mapper()), "mapper kept for a second put");
+    }
+
+    public static void testQueriesWithManyShapesKeepABoundedCacheAndReuseMappers() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        AtomicInteger call = new AtomicInteger();
+        //every call reports a different column type, so each result set has a shape of its own
+        database.onQuery((sql, params) -> new FakeResult(SqlSessionTest.ITEM_COLUMNS,
+                new int[]{Types.BIGINT, Types.VARCHAR, 10_000 + call.getAndIncrement() % 20}, new Object[][]{{1L, "bolt", 3}}));
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            for (int i = 0; i < 40; i++) {
+                assertEquals("bolt", session.<Item>selectList("listItems").get(0).name, "mapped row " + i);
+            }
+
+            SelectQuery query = (SelectQuery) factory.getConfiguration().getQueryById("listItems");
+            RowMapperCache cache = (RowMapperCache) query.getRowMapperCache(RowMapperCache::new);
+            assertEquals(RowMapperCache.DEFAULT_CAPACITY, cache.size(), "cached shapes");
+
+            call.set(39);
+            session.selectList("listItems");
+            CompiledRowMapper<?> cached = cache.get("id:-5,name:12,qty:10019,");
+            assertNotNull(cached, "mapper of the most recent shape");
+            session.selectList("listItems");
+            call.set(39);
+            session.selectList("listItems");
+            assertTrue(cached == cache.get("id:-5,name:12,qty:10019,"), "mapper reused for a repeated shape");
+        }
+    }
+}
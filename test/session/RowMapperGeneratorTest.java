@@ -0,0 +1,92 @@
+package session;
+
+import exceptions.IbatisException;
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import testsupport.FakeResult;
+import utility.PropertyAccessor;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.List;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertNotNull;
+import static testsupport.Assert.assertNull;
+import static testsupport.Assert.assertThrows;
+import static testsupport.Assert.assertTrue;
+
+public class RowMapperGeneratorTest {
+    private static final PropertyAccessor[] ITEM_ACCESSORS = PropertyAccessor.forClass(Item.class).values().toArray(new PropertyAccessor[0]);
+
+    interface RowCheck {
+        void check(ResultSet rs) throws Exception;
+    }
+
+    //runs the check once per row against a fresh result set of the given rows
+    private static void withRows(FakeResult result, RowCheck check) throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        database.onQuery((sql, params) -> result);
+        try (Connection connection = DriverManager.getConnection(database.getUrl());
+             PreparedStatement statement = connection.prepareStatement("select id, name, qty from items");
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                check.check(rs);
+            }
+        }
+    }
+
+    private static CompiledRowMapper<Item> reflective() throws Exception {
+        return new CompiledRowMapper<>(Item.class.getDeclaredConstructor(), ITEM_ACCESSORS, null);
+    }
+
+    private static CompiledRowMapper<Item> generated() throws Exception {
+        RowMapper<Item> generated = RowMapperGenerator.generate(Item.class, ITEM_ACCESSORS);
+        assertNotNull(generated, "generated mapper for Item");
+        CompiledRowMapper<Item> rowMapper = new CompiledRowMapper<>(Item.class.getDeclaredConstructor(), ITEM_ACCESSORS, generated);
+        assertTrue(rowMapper.isGenerated(), "mapper uses the generated class");
+        return rowMapper;
+    }
+
+    public static void testBothMappersConvertColumnsToTheFieldTypes() throws Exception {
+        //id comes back as INTEGER and qty as BIGINT, the fields are long and int
+        FakeResult result = new FakeResult(SqlSessionTest.ITEM_COLUMNS, new int[]{Types.INTEGER, Types.VARCHAR, Types.BIGINT},
+                new Object[][]{{7, "bolt", 3L}});
+        for (CompiledRowMapper<Item> rowMapper : List.of(reflective(), generated())) {
+            withRows(result, rs -> {
+                Item item = rowMapper.map(rs);
+                assertEquals(7L, item.id, "id");
+                assertEquals("bolt", item.name, "name");
+                assertEquals(3, item.qty, "qty");
+            });
+        }
+    }
+
+    public static void testBothMappersKeepNullForReferenceColumns() throws Exception {
+        FakeResult result = FakeResult.of(SqlSessionTest.ITEM_COLUMNS, new Object[]{1L, null, 3});
+        for (CompiledRowMapper<Item> rowMapper : List.of(reflective(), generated())) {
+            withRows(result, rs -> {
+                Item item = new Item("old", 0);
+                rowMapper.fill(rs, item);
+                assertNull(item.name, "name of " + (rowMapper.isGenerated() ? "generated" : "reflective") + " mapper");
+            });
+        }
+    }
+
+    public static void testBothMappersRejectNullForPrimitiveColumns() throws Exception {
+        FakeResult result = FakeResult.of(SqlSessionTest.ITEM_COLUMNS, new Object[]{1L, "bolt", 3}, new Object[]{2L, "nut", null});
+        for (CompiledRowMapper<Item> rowMapper : List.of(reflective(), generated())) {
+            withRows(result, rs -> {
+                if (rs.getRow() == 1) {
+                    assertEquals(3, rowMapper.map(rs).qty, "qty of the first row");
+                    return;
+                }
+                IbatisException e = assertThrows(IbatisException.class, () -> rowMapper.map(rs));
+                assertTrue(e.getMessage().contains("qty"), "message names the column: " + e.getMessage());
+            });
+        }
+    }
+}
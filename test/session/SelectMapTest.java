@@ -0,0 +1,58 @@
+package session;
+
+import exceptions.IbatisException;
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import testsupport.FakeResult;
+import testsupport.Sessions;
+import utility.LongKeyMap;
+
+import java.util.Map;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertThrows;
+import static testsupport.Assert.assertTrue;
+
+public class SelectMapTest {
+    static SqlSessionFactory factory() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        database.onQuery((sql, params) -> FakeResult.of(SqlSessionTest.ITEM_COLUMNS,
+                new Object[]{10L, "bolt", 3}, new Object[]{20L, "nut", 5}, new Object[]{30L, "washer", 7}));
+        return Sessions.over(database).mapper(ItemMapper.class).build();
+    }
+
+    public static void testSelectMapIndexesRowsByKeyProperty() throws Exception {
+        try (SqlSession session = factory().openSession()) {
+            Map<Long, Item> byId = session.selectMap("listItems", "id");
+            assertEquals(3, byId.size(), "entries");
+            assertEquals("nut", byId.get(20L).name, "row for key 20");
+
+            Map<String, Item> byName = session.selectMap("listItems", "name");
+            assertEquals(30L, byName.get("washer").id, "row for key washer");
+        }
+    }
+
+    public static void testSelectLongMapUsesPrimitiveKeys() throws Exception {
+        try (SqlSession session = factory().openSession()) {
+            LongKeyMap<Item> byId = session.selectLongMap("listItems", "id");
+            assertEquals(3, byId.size(), "entries");
+            assertEquals("bolt", byId.get(10L).name, "row for key 10");
+            assertEquals(null, byId.get(11L), "row for a missing key");
+
+            assertThrows(IbatisException.class, () -> session.selectLongMap("listItems", "name"));
+            assertThrows(IbatisException.class, () -> session.selectMap("listItems", "missing"));
+        }
+    }
+
+    public static void testMapKeyMapperMethodsPickTheMapTypeFromTheReturnType() throws Exception {
+        try (SqlSession session = factory().openSession()) {
+            ItemMapper mapper = session.getMapper(ItemMapper.class);
+            Map<Long, Item> byId = mapper.itemsById();
+            assertEquals("washer", byId.get(30L).name, "Map row for key 30");
+
+            LongKeyMap<Item> byLongId = mapper.itemsByLongId();
+            assertTrue(byLongId.containsKey(20L), "LongKeyMap contains key 20");
+            assertEquals(3, byLongId.values().size(), "LongKeyMap values");
+        }
+    }
+}
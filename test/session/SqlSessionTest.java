@@ -0,0 +1,87 @@
+package session;
+
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import testsupport.FakeResult;
+import testsupport.Sessions;
+import utility.VirtualThreads;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertFalse;
+import static testsupport.Assert.assertTrue;
+
+public class SqlSessionTest {
+    static final String[] ITEM_COLUMNS = {"id", "name", "qty"};
+
+    public static void testStatementsRunOnTheCallingThread() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        AtomicReference<Thread> queryThread = new AtomicReference<>();
+        database.onQuery((sql, params) -> {
+            queryThread.set(Thread.currentThread());
+            return FakeResult.of(ITEM_COLUMNS, new Object[]{1L, "bolt", 3});
+        });
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            List<Item> items = session.selectList("listItems");
+            assertEquals(1, items.size(), "rows");
+            assertEquals(Thread.currentThread(), queryThread.get(), "thread the query ran on");
+        }
+    }
+
+    public static void testUseVirtualThreadsFallsBackToTheCallingThreadWithoutVirtualThreads() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        AtomicReference<Thread> queryThread = new AtomicReference<>();
+        database.onQuery((sql, params) -> {
+            queryThread.set(Thread.currentThread());
+            return FakeResult.of(ITEM_COLUMNS, new Object[]{1L, "bolt", 3});
+        });
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).setting("useVirtualThreads", "true").build();
+        assertEquals(VirtualThreads.isSupported(), factory.isUseVirtualThreads(), "virtual threads in use");
+        try (SqlSession session = factory.openSession()) {
+            assertEquals(1, session.selectList("listItems").size(), "rows");
+            if (VirtualThreads.isSupported()) {
+                assertTrue(VirtualThreads.isVirtual(queryThread.get()), "query ran on a virtual thread");
+            } else {
+                assertEquals(Thread.currentThread(), queryThread.get(), "thread the query ran on");
+            }
+        }
+
+        factory.setUseVirtualThreads(false);
+        assertFalse(factory.isUseVirtualThreads(), "virtual threads after switching them off");
+    }
+
+    public static void testCachedStatementDoesNotKeepLimitsOfAnEarlierQuery() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        database.onQuery((sql, params) -> FakeResult.of(ITEM_COLUMNS,
+                new Object[]{1L, "bolt", 3}, new Object[]{2L, "nut", 5}, new Object[]{3L, "washer", 7}));
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).dataSource("maxActive", "1").build();
+        try (SqlSession session = factory.openSession()) {
+            assertEquals(1, session.selectList("firstItems").size(), "rows with maxRows=1");
+            assertEquals(3, session.selectList("listItems").size(), "rows of the same sql without maxRows");
+        }
+        assertEquals(1, database.countEvents("prepare "), "statements prepared for the shared sql");
+        List<String> events = database.getEvents();
+        assertTrue(events.lastIndexOf("setMaxRows 0") > events.lastIndexOf("setMaxRows 1"), "maxRows reset on reuse: " + events);
+        assertTrue(events.lastIndexOf("setFetchSize 0") > events.lastIndexOf("setFetchSize 50"), "fetchSize reset on reuse: " + events);
+    }
+
+    public static void testResultHandlerReceivesRowsUntilStopped() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        database.onQuery((sql, params) -> FakeResult.of(ITEM_COLUMNS,
+                new Object[]{1L, "bolt", 3}, new Object[]{2L, "nut", 5}, new Object[]{3L, "washer", 7}));
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        List<String> names = new java.util.ArrayList<>();
+        try (SqlSession session = factory.openSession()) {
+            session.getMapper(ItemMapper.class).eachItem(context -> {
+                names.add(context.getResultObject().name);
+                if (context.getResultCount() == 2) {
+                    context.stop();
+                }
+            });
+        }
+        assertEquals(List.of("bolt", "nut"), names, "rows handed to the handler");
+    }
+}
@@ -0,0 +1,90 @@
+package session;
+
+import exceptions.IbatisException;
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+import testsupport.Sessions;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Savepoint;
+import java.util.List;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertThrows;
+import static testsupport.Assert.assertTrue;
+
+public class TransactionTest {
+    static List<String> transactionEvents(FakeDatabase database) {
+        return database.getEvents().stream()
+                .filter(e -> e.startsWith("autoCommit") || e.startsWith("commit") || e.startsWith("rollback")
+                        || e.startsWith("savepoint") || e.startsWith("release"))
+                .toList();
+    }
+
+    public static void testCommitEndsTheTransactionAndReturnsAnAutoCommitConnection() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession(false)) {
+            session.update("updateItem", new Item("a", 1));
+            session.commit();
+        }
+        assertEquals(List.of("autoCommit=false", "commit", "autoCommit=true"), transactionEvents(database), "transaction events");
+    }
+
+    public static void testUncommittedWorkIsRolledBackOnClose() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession(false)) {
+            session.update("updateItem", new Item("a", 1));
+        }
+        assertEquals(List.of("autoCommit=false", "rollback", "autoCommit=true"), transactionEvents(database), "transaction events");
+    }
+
+    public static void testSavepointsRollBackPartOfATransaction() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession(false)) {
+            session.update("updateItem", new Item("a", 1));
+            Savepoint savepoint = session.setSavepoint("before_b");
+            session.update("updateItem", new Item("b", 2));
+            session.rollback(savepoint);
+            session.releaseSavepoint(savepoint);
+            session.commit();
+        }
+        assertEquals(List.of("autoCommit=false", "savepoint before_b", "rollback before_b", "release before_b", "commit", "autoCommit=true"),
+                transactionEvents(database), "transaction events");
+    }
+
+    public static void testSavepointsAreRejectedInAutoCommitSessions() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).build();
+        try (SqlSession session = factory.openSession()) {
+            assertThrows(IbatisException.class, session::setSavepoint);
+        }
+    }
+
+    public static void testManagedSessionFollowsTheConnectionMode() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        SqlSessionFactory factory = Sessions.over(database).mapper(ItemMapper.class).transactionManager("MANAGED").build();
+
+        //pooled connections come back in autocommit mode, so there is no transaction to place a savepoint in
+        try (SqlSession session = factory.openSession(false)) {
+            IbatisException e = assertThrows(IbatisException.class, session::setSavepoint);
+            assertTrue(e.getMessage().contains("autocommit"), "message: " + e.getMessage());
+        }
+
+        try (Connection connection = DriverManager.getConnection(database.getUrl())) {
+            connection.setAutoCommit(false);
+            try (SqlSession session = factory.openSession(connection)) {
+                session.update("updateItem", new Item("a", 1));
+                Savepoint savepoint = session.setSavepoint("sp");
+                session.rollback(savepoint);
+                session.commit();
+            }
+            assertTrue(!connection.isClosed(), "the coordinator's connection stays open");
+        }
+        List<String> events = transactionEvents(database);
+        assertEquals(List.of("autoCommit=false", "savepoint sp", "rollback sp"), events, "managed transaction events");
+    }
+}
@@ -0,0 +1,56 @@
+package testsupport;
+
+import java.util.Objects;
+
+public final class Assert {
+    private Assert() {
+    }
+
+    public interface ThrowingRunnable {
+        void run() throws Throwable;
+    }
+
+    public static void assertEquals(Object expected, Object actual) {
+        assertEquals(expected, actual, null);
+    }
+
+    public static void assertEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            fail((message == null ? "" : message + ": ") + "expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    public static void assertTrue(boolean condition, String message) {
+        if (!condition) {
+            fail(message);
+        }
+    }
+
+    public static void assertFalse(boolean condition, String message) {
+        assertTrue(!condition, message);
+    }
+
+    public static void assertNull(Object value, String message) {
+        assertTrue(value == null, message + ": expected null but was <" + value + ">");
+    }
+
+    public static void assertNotNull(Object value, String message) {
+        assertTrue(value != null, message);
+    }
+
+    public static <T extends Throwable> T assertThrows(Class<T> type, ThrowingRunnable action) {
+        try {
+            action.run();
+        } catch (Throwable t) {
+            if (type.isInstance(t)) {
+                return type.cast(t);
+            }
+            throw new AssertionError("expected " + type.getName() + " but caught " + t, t);
+        }
+        throw new AssertionError("expected " + type.getName() + " to be thrown");
+    }
+
+    public static void fail(String message) {
+        throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,522 @@
+package testsupport;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//behaves like MariaDB where it matters to the session: one generated key per statement, maxRows caps result sets,
+//cancel interrupts a running query and savepoints need a transaction
+public final class FakeDatabase {
+    public interface QueryHandler {
+        FakeResult query(String sql, List<Object> params) throws SQLException;
+    }
+
+    public interface UpdateHandler {
+        int update(String sql, List<Object> params) throws SQLException;
+    }
+
+    private final String url;
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    private final AtomicInteger failingConnects = new AtomicInteger();
+    private final AtomicInteger openStatements = new AtomicInteger();
+    private final AtomicInteger rowsFetched = new AtomicInteger();
+    private final AtomicLong nextKey = new AtomicLong(1);
+    private volatile QueryHandler queryHandler = (sql, params) -> FakeResult.EMPTY;
+    private volatile UpdateHandler updateHandler = (sql, params) -> 1 + countOf(sql, "),(");
+    private volatile long queryDelayMillis;
+    private volatile long connectDelayMillis;
+    private volatile long validationDelayMillis;
+    private volatile boolean valid = true;
+    private volatile boolean failResultSetClose;
+
+    FakeDatabase(String url) {
+        this.url = url;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void onQuery(QueryHandler queryHandler) {
+        this.queryHandler = queryHandler;
+    }
+
+    public void onUpdate(UpdateHandler updateHandler) {
+        this.updateHandler = updateHandler;
+    }
+
+    public void setQueryDelayMillis(long queryDelayMillis) {
+        this.queryDelayMillis = queryDelayMillis;
+    }
+
+    public void setConnectDelayMillis(long connectDelayMillis) {
+        this.connectDelayMillis = connectDelayMillis;
+    }
+
+    public void setValidationDelayMillis(long validationDelayMillis) {
+        this.validationDelayMillis = validationDelayMillis;
+    }
+
+    public void failNextConnects(int count) {
+        failingConnects.set(count);
+    }
+
+    public void setValid(boolean valid) {
+        this.valid = valid;
+    }
+
+    public void setFailResultSetClose(boolean failResultSetClose) {
+        this.failResultSetClose = failResultSetClose;
+    }
+
+    //statements prepared and not yet closed, cached ones included
+    public int getOpenStatements() {
+        return openStatements.get();
+    }
+
+    //rows the driver has moved to with ResultSet.next, so tests can tell how far a result was read
+    public int getRowsFetched() {
+        return rowsFetched.get();
+    }
+
+    public void setNextKey(long key) {
+        nextKey.set(key);
+    }
+
+    public int getOpenedConnections() {
+        return opened.get();
+    }
+
+    public int getOpenConnections() {
+        return opened.get() - closed.get();
+    }
+
+    public List<String> getEvents() {
+        synchronized (events) {
+            return new ArrayList<>(events);
+        }
+    }
+
+    public int countEvents(String prefix) {
+        synchronized (events) {
+            return (int) events.stream().filter(event -> event.startsWith(prefix)).count();
+        }
+    }
+
+    public void clearEvents() {
+        events.clear();
+    }
+
+    private void log(String event) {
+        events.add(event);
+    }
+
+    private static int countOf(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    Connection connect() throws SQLException {
+        if (failingConnects.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+            throw new SQLException("Connection refused: " + url, "08001");
+        }
+        sleep(connectDelayMillis);
+        opened.incrementAndGet();
+        return proxy(Connection.class, new ConnectionHandler());
+    }
+
+    private static void sleep(long millis) throws SQLException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted", e);
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeDatabase.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private abstract static class Handler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    try {
+                        return handle(method, args == null ? new Object[0] : args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+
+        abstract Object handle(Method method, Object[] args) throws Exception;
+
+        static Object defaultValue(Class<?> type) {
+            if (type == boolean.class) {
+                return false;
+            } else if (type == int.class) {
+                return 0;
+            } else if (type == long.class) {
+                return 0L;
+            } else if (type == short.class) {
+                return (short) 0;
+            } else if (type == byte.class) {
+                return (byte) 0;
+            } else if (type == double.class) {
+                return 0d;
+            } else if (type == float.class) {
+                return 0f;
+            }
+            return null;
+        }
+    }
+
+    private class ConnectionHandler extends Handler {
+        private boolean autoCommit = true;
+        private boolean closed;
+        private int savepoints;
+
+        @Override
+        Object handle(Method method, Object[] args) throws Exception {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    checkOpen();
+                    boolean keys = args.length == 2 && (Integer) args[1] == Statement.RETURN_GENERATED_KEYS;
+                    log("prepare " + args[0]);
+                    openStatements.incrementAndGet();
+                    return proxy(PreparedStatement.class, new StatementHandler((String) args[0], keys));
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    log("autoCommit=" + autoCommit);
+                    return null;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "commit":
+                    log("commit");
+                    return null;
+                case "rollback":
+                    if (args.length == 1) {
+                        requireTransaction("rollback to a savepoint");
+                        log("rollback " + ((Savepoint) args[0]).getSavepointName());
+                    } else {
+                        log("rollback");
+                    }
+                    return null;
+                case "setSavepoint":
+                    requireTransaction("set a savepoint");
+                    String name = args.length == 1 ? (String) args[0] : "sp" + ++savepoints;
+                    log("savepoint " + name);
+                    return proxy(Savepoint.class, (p, m, a) -> m.getName().equals("getSavepointName") ? name : Handler.defaultValue(m.getReturnType()));
+                case "releaseSavepoint":
+                    log("release " + ((Savepoint) args[0]).getSavepointName());
+                    return null;
+                case "isValid":
+                    sleep(validationDelayMillis);
+                    return valid && !closed;
+                case "isClosed":
+                    return closed;
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        FakeDatabase.this.closed.incrementAndGet();
+                    }
+                    return null;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+
+        private void checkOpen() throws SQLException {
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+        }
+
+        private void requireTransaction(String action) throws SQLException {
+            if (autoCommit) {
+                throw new SQLException("Cannot " + action + " when autocommit is enabled");
+            }
+        }
+    }
+
+    private class StatementHandler extends Handler {
+        private final String sql;
+        private final boolean returnKeys;
+        private final TreeMap<Integer, Object> params = new TreeMap<>();
+        private final List<List<Object>> batch = new ArrayList<>();
+        private final List<Long> keys = new ArrayList<>();
+        private volatile boolean cancelled;
+        private int fetchSize;
+        private int maxRows;
+        private int queryTimeout;
+        private boolean closed;
+
+        StatementHandler(String sql, boolean returnKeys) {
+            this.sql = sql;
+            this.returnKeys = returnKeys;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Exception {
+            String name = method.getName();
+            switch (name) {
+                case "setFetchSize":
+                    fetchSize = (Integer) args[0];
+                    log("setFetchSize " + fetchSize);
+                    return null;
+                case "getFetchSize":
+                    return fetchSize;
+                case "setMaxRows":
+                    maxRows = (Integer) args[0];
+                    log("setMaxRows " + maxRows);
+                    return null;
+                case "getMaxRows":
+                    return maxRows;
+                case "setQueryTimeout":
+                    queryTimeout = (Integer) args[0];
+                    log("setQueryTimeout " + queryTimeout);
+                    return null;
+                case "getQueryTimeout":
+                    return queryTimeout;
+                case "clearParameters":
+                    params.clear();
+                    return null;
+                case "addBatch":
+                    batch.add(new ArrayList<>(params.values()));
+                    return null;
+                case "clearBatch":
+                    batch.clear();
+                    return null;
+                case "executeBatch":
+                    return executeBatch();
+                case "executeUpdate":
+                    return executeUpdate();
+                case "executeQuery":
+                    return executeQuery();
+                case "getGeneratedKeys":
+                    List<Object[]> rows = new ArrayList<>();
+                    for (Long key : keys) {
+                        rows.add(new Object[]{key});
+                    }
+                    return proxy(ResultSet.class, new ResultSetHandler(FakeResult.of(new String[]{"insert_id"}, rows), 0));
+                case "cancel":
+                    cancelled = true;
+                    log("cancel");
+                    return null;
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        openStatements.decrementAndGet();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                default:
+                    if (name.startsWith("set") && args.length >= 2 && args[0] instanceof Integer index) {
+                        params.put(index, name.equals("setNull") ? null : args[1]);
+                        return null;
+                    }
+                    return defaultValue(method.getReturnType());
+            }
+        }
+
+        private int[] executeBatch() throws SQLException {
+            log("executeBatch " + batch.size());
+            int[] counts = new int[batch.size()];
+            keys.clear();
+            for (int i = 0; i < batch.size(); i++) {
+                counts[i] = updateHandler.update(sql, batch.get(i));
+                if (returnKeys && counts[i] > 0) {
+                    keys.add(nextKey.getAndAdd(counts[i]));
+                }
+            }
+            batch.clear();
+            return counts;
+        }
+
+        private int executeUpdate() throws SQLException {
+            List<Object> values = new ArrayList<>(params.values());
+            log("executeUpdate " + sql + " " + values);
+            int count = updateHandler.update(sql, values);
+            keys.clear();
+            if (returnKeys && count > 0) {
+                //like MariaDB, a multi-row insert reports only the first id it generated
+                keys.add(nextKey.getAndAdd(count));
+            }
+            return count;
+        }
+
+        private ResultSet executeQuery() throws SQLException {
+            cancelled = false;
+            List<Object> values = new ArrayList<>(params.values());
+            log("executeQuery " + sql + " " + values);
+            long delay = queryDelayMillis;
+            long start = System.nanoTime();
+            while (delay > 0) {
+                long elapsed = (System.nanoTime() - start) / 1_000_000;
+                if (cancelled) {
+                    throw new SQLException("Query execution was interrupted", "70100", 1317);
+                }
+                if (queryTimeout > 0 && elapsed >= queryTimeout * 1000L) {
+                    throw new SQLTimeoutException("Query timed out after " + queryTimeout + "s");
+                }
+                if (elapsed >= delay) {
+                    break;
+                }
+                sleep(2);
+            }
+            return proxy(ResultSet.class, new ResultSetHandler(queryHandler.query(sql, values), maxRows));
+        }
+    }
+
+    private class ResultSetHandler extends Handler {
+        private final FakeResult result;
+        private final int limit;
+        private int row = -1;
+        private boolean wasNull;
+        private boolean closed;
+
+        ResultSetHandler(FakeResult result, int maxRows) {
+            this.result = result;
+            this.limit = maxRows > 0 ? Math.min(maxRows, result.rows.length) : result.rows.length;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Exception {
+            String name = method.getName();
+            switch (name) {
+                case "next":
+                    if (++row < limit) {
+                        rowsFetched.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                case "last":
+                    row = limit - 1;
+                    return limit > 0;
+                case "getRow":
+                    return row + 1;
+                case "wasNull":
+                    return wasNull;
+                case "close":
+                    closed = true;
+                    if (failResultSetClose) {
+                        throw new SQLException("Failed to close result set");
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getMetaData":
+                    return proxy(ResultSetMetaData.class, new MetaDataHandler(result));
+                case "findColumn":
+                    return findColumn((String) args[0]);
+                default:
+                    if (name.startsWith("get") && args.length >= 1 && (args[0] instanceof Integer || args[0] instanceof String)) {
+                        int column = args[0] instanceof Integer index ? index : findColumn((String) args[0]);
+                        Object value = result.rows[row][column - 1];
+                        wasNull = value == null;
+                        return convert(value, method.getReturnType());
+                    }
+                    return defaultValue(method.getReturnType());
+            }
+        }
+
+        private int findColumn(String label) throws SQLException {
+            for (int i = 0; i < result.columns.length; i++) {
+                if (result.columns[i].equalsIgnoreCase(label)) {
+                    return i + 1;
+                }
+            }
+            throw new SQLException("Unknown column " + label);
+        }
+
+        private static Object convert(Object value, Class<?> type) {
+            if (value == null) {
+                return defaultValue(type);
+            }
+            if (type == Object.class || type.isInstance(value)) {
+                return value;
+            }
+            if (type == String.class) {
+                return value.toString();
+            }
+            if (value instanceof Number number) {
+                if (type == int.class) {
+                    return number.intValue();
+                } else if (type == long.class) {
+                    return number.longValue();
+                } else if (type == short.class) {
+                    return number.shortValue();
+                } else if (type == byte.class) {
+                    return number.byteValue();
+                } else if (type == double.class) {
+                    return number.doubleValue();
+                } else if (type == float.class) {
+                    return number.floatValue();
+                } else if (type == boolean.class) {
+                    return number.intValue() != 0;
+                } else if (type == BigDecimal.class) {
+                    return new BigDecimal(number.toString());
+                }
+            }
+            throw new ClassCastException("Can not read " + value.getClass().getName() + " as " + type.getName());
+        }
+    }
+
+    private static class MetaDataHandler extends Handler {
+        private final FakeResult result;
+
+        MetaDataHandler(FakeResult result) {
+            this.result = result;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return result.columns.length;
+                case "getColumnName":
+                case "getColumnLabel":
+                    return result.columns[(Integer) args[0] - 1];
+                case "getColumnType":
+                    return result.types[(Integer) args[0] - 1];
+                case "isNullable":
+                    return ResultSetMetaData.columnNullableUnknown;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+}
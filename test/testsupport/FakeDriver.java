@@ -0,0 +1,82 @@
+package testsupport;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+//an in-memory JDBC driver for jdbc:fake:<name> urls, every name is a separate scriptable FakeDatabase
+public final class FakeDriver implements Driver {
+    private static final String PREFIX = "jdbc:fake:";
+    private static final Map<String, FakeDatabase> DATABASES = new ConcurrentHashMap<>();
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    static {
+        try {
+            DriverManager.registerDriver(new FakeDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private FakeDriver() {
+    }
+
+    //every test gets a database of its own, so nothing leaks between tests sharing the driver
+    public static FakeDatabase newDatabase() {
+        String name = "db" + COUNTER.incrementAndGet();
+        FakeDatabase database = new FakeDatabase(PREFIX + name);
+        DATABASES.put(name, database);
+        return database;
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+
+        FakeDatabase database = DATABASES.get(url.substring(PREFIX.length()));
+        if (database == null) {
+            throw new SQLException("Unknown database " + url);
+        }
+        return database.connect();
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
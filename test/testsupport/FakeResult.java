@@ -0,0 +1,55 @@
+package testsupport;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.List;
+
+public final class FakeResult {
+    public static final FakeResult EMPTY = new FakeResult(new String[0], new int[0], new Object[0][]);
+
+    final String[] columns;
+    final int[] types;
+    final Object[][] rows;
+
+    public FakeResult(String[] columns, int[] types, Object[][] rows) {
+        this.columns = columns;
+        this.types = types;
+        this.rows = rows;
+    }
+
+    //column types are taken from the first non-null value of each column
+    public static FakeResult of(String[] columns, Object[]... rows) {
+        int[] types = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            types[i] = Types.VARCHAR;
+            for (Object[] row : rows) {
+                if (row[i] != null) {
+                    types[i] = typeOf(row[i]);
+                    break;
+                }
+            }
+        }
+        return new FakeResult(columns, types, rows);
+    }
+
+    public static FakeResult of(String[] columns, List<Object[]> rows) {
+        return of(columns, rows.toArray(new Object[0][]));
+    }
+
+    private static int typeOf(Object value) {
+        if (value instanceof Integer) {
+            return Types.INTEGER;
+        } else if (value instanceof Long) {
+            return Types.BIGINT;
+        } else if (value instanceof BigDecimal) {
+            return Types.DECIMAL;
+        } else if (value instanceof java.sql.Date) {
+            return Types.DATE;
+        }
+        return Types.VARCHAR;
+    }
+
+    public int size() {
+        return rows.length;
+    }
+}
@@ -0,0 +1,89 @@
+package testsupport;
+
+import session.SqlSessionFactory;
+import session.SqlSessionFactoryBuilder;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//builds a session factory over a FakeDatabase through the regular XML configuration path
+public final class Sessions {
+    private final FakeDatabase database;
+    private final Map<String, String> settings = new LinkedHashMap<>();
+    private final Map<String, String> dataSource = new LinkedHashMap<>();
+    private final List<Class<?>> mappers = new ArrayList<>();
+    private String transactionManager = "JDBC";
+    private String dataSourceType = "POOLED";
+
+    private Sessions(FakeDatabase database) {
+        this.database = database;
+        this.dataSource.put("url", database.getUrl());
+        this.dataSource.put("registerMBean", "false");
+        this.dataSource.put("minIdle", "0");
+    }
+
+    public static Sessions over(FakeDatabase database) {
+        return new Sessions(database);
+    }
+
+    public Sessions mapper(Class<?> mapper) {
+        mappers.add(mapper);
+        return this;
+    }
+
+    public Sessions setting(String name, String value) {
+        settings.put(name, value);
+        return this;
+    }
+
+    public Sessions dataSource(String name, String value) {
+        dataSource.put(name, value);
+        return this;
+    }
+
+    //switches to a ROUTING data source that reads from the given databases
+    public Sessions replicas(FakeDatabase... replicas) {
+        List<String> urls = new ArrayList<>();
+        for (FakeDatabase replica : replicas) {
+            urls.add(replica.getUrl());
+        }
+        dataSource.put("replicas", String.join(",", urls));
+        this.dataSourceType = "ROUTING";
+        return this;
+    }
+
+    public Sessions transactionManager(String type) {
+        this.transactionManager = type;
+        return this;
+    }
+
+    public FakeDatabase getDatabase() {
+        return database;
+    }
+
+    public SqlSessionFactory build() throws Exception {
+        StringBuilder xml = new StringBuilder("<configuration>");
+        if (!settings.isEmpty()) {
+            xml.append("<settings>");
+            settings.forEach((name, value) -> xml.append(property("setting", name, value)));
+            xml.append("</settings>");
+        }
+        xml.append("<environments default='test'><environment id='test'>")
+                .append("<transactionManager type='").append(transactionManager).append("'/>")
+                .append("<dataSource type='").append(dataSourceType).append("'>");
+        dataSource.forEach((name, value) -> xml.append(property("property", name, value)));
+        xml.append("</dataSource></environment></environments><mappers>");
+        for (Class<?> mapper : mappers) {
+            xml.append("<mapper class='").append(mapper.getName()).append("'/>");
+        }
+        xml.append("</mappers></configuration>");
+        return new SqlSessionFactoryBuilder().build(new StringReader(xml.toString()));
+    }
+
+    private static String property(String element, String name, String value) {
+        return "<" + element + " name='" + name + "' value='" + value + "'/>";
+    }
+}
@@ -0,0 +1,72 @@
+package testsupport;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+//runs every public static no-arg test* method of the *Test classes found next to this class, or of the classes named on the command line
+public final class TestRunner {
+    private TestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> classNames = args.length > 0 ? Arrays.asList(args) : findTestClasses();
+        int passed = 0;
+        List<String> failures = new ArrayList<>();
+        for (String className : classNames) {
+            Class<?> testClass = Class.forName(className);
+            Method[] methods = testClass.getDeclaredMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for (Method method : methods) {
+                if (!isTest(method)) {
+                    continue;
+                }
+
+                String name = testClass.getName() + "." + method.getName();
+                long start = System.nanoTime();
+                try {
+                    method.invoke(null);
+                    passed++;
+                    System.out.printf("PASS %s (%d ms)%n", name, (System.nanoTime() - start) / 1_000_000);
+                } catch (InvocationTargetException e) {
+                    failures.add(name);
+                    System.out.println("FAIL " + name);
+                    e.getCause().printStackTrace(System.out);
+                }
+            }
+        }
+
+        System.out.printf("%d passed, %d failed%n", passed, failures.size());
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean isTest(Method method) {
+        int modifiers = method.getModifiers();
+        return method.getName().startsWith("test") && Modifier.isStatic(modifiers) && Modifier.isPublic(modifiers)
+                && method.getParameterCount() == 0;
+    }
+
+    private static List<String> findTestClasses() throws Exception {
+        Path root = Path.of(TestRunner.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.map(root::relativize)
+                    .map(Path::toString)
+                    .filter(file -> file.endsWith("Test.class"))
+                    .map(file -> file.substring(0, file.length() - ".class".length()).replace(root.getFileSystem().getSeparator(), "."))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to scan " + root + " for tests", e);
+        }
+    }
+}
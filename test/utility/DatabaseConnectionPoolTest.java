@@ -0,0 +1,369 @@
+package utility;
+
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertFalse;
+import static testsupport.Assert.assertThrows;
+import static testsupport.Assert.assertTrue;
+
+public class DatabaseConnectionPoolTest {
+    static Properties properties(String... pairs) {
+        Properties properties = new Properties();
+        properties.setProperty("registerMBean", "false");
+        for (int i = 0; i < pairs.length; i += 2) {
+            properties.setProperty(pairs[i], pairs[i + 1]);
+        }
+        return properties;
+    }
+
+    static DatabaseConnectionPool newPool(FakeDatabase database, String... pairs) throws Exception {
+        return new DatabaseConnectionPool(database.getUrl(), "", "", new PoolConfiguration(properties(pairs)));
+    }
+
+    public static void testConcurrentBorrowersNeverExceedMaxActive() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        DatabaseConnectionPool pool = newPool(database, "maxActive", "4", "minIdle", "1", "acquireTimeout", "10000");
+        AtomicInteger borrowed = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        Set<Connection> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 200; i++) {
+                        Connection connection = pool.getConnection(10000L);
+                        peak.accumulateAndGet(borrowed.incrementAndGet(), Math::max);
+                        seen.add(connection);
+                        borrowed.decrementAndGet();
+                        assertTrue(pool.releaseConnection(connection), "release of a borrowed connection");
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+            assertTrue(peak.get() <= 4, "peak borrowed " + peak.get() + " exceeds maxActive");
+            assertTrue(seen.size() <= 4, "pool handed out " + seen.size() + " distinct connections");
+            assertTrue(database.getOpenedConnections() <= 4, "opened " + database.getOpenedConnections() + " connections");
+            assertEquals(0, pool.getMetrics().getActiveConnections(), "active after all borrowers returned");
+            assertEquals(0, pool.getMetrics().getPendingThreads(), "pending after all borrowers returned");
+        } finally {
+            executor.shutdownNow();
+            pool.close();
+        }
+        assertEquals(0, database.getOpenConnections(), "open connections after close");
+    }
+
+    public static void testReleaseOfForeignOrReturnedConnectionIsRejected() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        DatabaseConnectionPool pool = newPool(database, "maxActive", "2", "minIdle", "1");
+        try {
+            Connection connection = pool.getConnection(1000L);
+            assertTrue(pool.releaseConnection(connection), "first release");
+            assertTrue(!pool.releaseConnection(connection), "second release of the same connection is ignored");
+            assertEquals(0, pool.getMetrics().getActiveConnections(), "active connections");
+        } finally {
+            pool.close();
+        }
+    }
+
+    public static void testDefaultPoolStartsSmallGrowsOnDemandAndShrinksWhenIdle() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        DatabaseConnectionPool pool = newPool(database, "maxActive", "6", "idleTimeout", "50", "housekeepingPeriod", "20");
+        try {
+            assertEquals(2, pool.getConfiguration().getMinIdle(), "default minIdle");
+            assertEquals(2, database.getOpenedConnections(), "connections opened up front");
+
+            List<Connection> borrowed = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                borrowed.add(pool.getConnection(1000L));
+            }
+            assertEquals(5, pool.getMetrics().getTotalConnections(), "connections after growing on demand");
+            for (Connection connection : borrowed) {
+                pool.releaseConnection(connection);
+            }
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.getMetrics().getTotalConnections() > 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, pool.getMetrics().getTotalConnections(), "connections after idleTimeout");
+            assertEquals(2, database.getOpenConnections(), "open connections after shrinking");
+        } finally {
+            pool.close();
+        }
+    }
+
+    public static void testLazyWarmUpIsNotDuplicatedByHousekeeping() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        database.setConnectDelayMillis(50);
+        DatabaseConnectionPool pool = newPool(database, "maxActive", "6", "minIdle", "3", "warmUpMode", "LAZY", "housekeepingPeriod", "1");
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.getMetrics().getIdleConnections() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            assertEquals(3, database.getOpenedConnections(), "connections opened by lazy warm-up and housekeeping");
+        } finally {
+            pool.close();
+        }
+    }
+
+    static void awaitCount(java.util.function.LongSupplier counter, long expected, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (counter.getAsLong() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, counter.getAsLong(), message);
+    }
+
+    public static void testLeakIsReportedOnceUntilTheConnectionIsReturned() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        DatabaseConnectionPool pool = newPool(database, "maxActive", "2", "minIdle", "0", "leakDetectionThreshold", "50",
+                "housekeepingPeriod", "10", "leakTraceSampleRate", "1");
+        try {
+            Connection connection = pool.getConnection(1000L);
+            awaitCount(() -> pool.getMetrics().getLeaksDetected(), 1, "leaks detected");
+            List<String> leaks = pool.getSuspectedLeaks();
+            assertEquals(1, leaks.size(), "suspected leaks");
+            assertTrue(leaks.get(0).contains("testLeakIsReportedOnceUntilTheConnectionIsReturned"), "leak carries the borrow trace: " + leaks.get(0));
+
+            Thread.sleep(100);
+            assertEquals(1L, pool.getMetrics().getLeaksDetected(), "leak reported again by later housekeeping runs");
+            assertFalse(connection.isClosed(), "leaked connection closed without reclaimLeakedConnections");
+            assertTrue(pool.releaseConnection(connection), "release of the leaked connection");
+            assertTrue(pool.getSuspectedLeaks().isEmpty(), "suspected leaks after release");
+        } finally {
+            pool.close();
+        }
+    }
+
+    public static void testLeakedConnectionIsReclaimedAndItsPermitReturned() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        DatabaseConnectionPool pool = newPool(database, "maxActive", "1", "minIdle", "0", "leakDetectionThreshold", "50",
+                "housekeepingPeriod", "10", "reclaimLeakedConnections", "true");
+        try {
+            Connection leaked = pool.getConnection(1000L);
+            awaitCount(() -> pool.getMetrics().getLeaksReclaimed(), 1, "leaks reclaimed");
+            assertTrue(leaked.isClosed(), "reclaimed connection is closed");
+            assertFalse(pool.releaseConnection(leaked), "late release of a reclaimed connection");
+
+            Connection next = pool.getConnection(1000L);
+            assertTrue(next != leaked, "reclaimed connection handed out again");
+            assertEquals(1, pool.getMetrics().getActiveConnections(), "active connections");
+            assertTrue(pool.releaseConnection(next), "release of the replacement");
+        } finally {
+            pool.close();
+        }
+    }
+
+    public static void testReturnedConnectionIsNotReportedWhileBeingValidatedForTheNextBorrow() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        DatabaseConnectionPool pool = newPool(database, "maxActive", "1", "minIdle", "0", "leakDetectionThreshold", "150",
+                "housekeepingPeriod", "10", "validationWindow", "0", "reclaimLeakedConnections", "true");
+        try {
+            pool.releaseConnection(pool.getConnection(1000L));
+            //the previous borrow started long before the next one is validated
+            Thread.sleep(300);
+            database.setValidationDelayMillis(50);
+            Connection connection = pool.getConnection(1000L);
+            assertFalse(connection.isClosed(), "connection reclaimed while it was validated");
+            assertEquals(0L, pool.getMetrics().getLeaksDetected(), "leaks detected");
+            pool.releaseConnection(connection);
+        } finally {
+            pool.close();
+        }
+    }
+
+    public static void testReclaimDuringValidationReleasesThePermitOnce() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        DatabaseConnectionPool pool = newPool(database, "maxActive", "1", "minIdle", "0", "leakDetectionThreshold", "100",
+                "housekeepingPeriod", "10", "validationWindow", "0", "reclaimLeakedConnections", "true");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            //validation outlasts the leak threshold, so the housekeeper reclaims the connection under the borrower
+            database.setValidationDelayMillis(300);
+            Future<Connection> borrower = executor.submit(() -> pool.getConnection(10000L));
+            awaitCount(() -> pool.getMetrics().getLeaksReclaimed(), 1, "leaks reclaimed during validation");
+            database.setValidationDelayMillis(0);
+
+            Connection connection = borrower.get(5, TimeUnit.SECONDS);
+            assertFalse(connection.isClosed(), "borrower got a closed connection");
+            assertTrue(pool.releaseConnection(connection), "release");
+
+            //a permit released twice would either let a second borrower in or lock every borrower out
+            Connection only = pool.getConnection(1000L);
+            assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection(20L));
+            assertTrue(pool.releaseConnection(only), "release of the only connection");
+            assertEquals(0, pool.getMetrics().getActiveConnections(), "active connections");
+        } finally {
+            executor.shutdownNow();
+            pool.close();
+        }
+    }
+
+    public static void testFailedConnectsDoNotExhaustThePool() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        DatabaseConnectionPool pool = newPool(database, "maxActive", "2", "minIdle", "0");
+        try {
+            database.failNextConnects(2);
+            assertThrows(SQLException.class, () -> pool.getConnection(100L));
+            assertThrows(SQLException.class, () -> pool.getConnection(100L));
+            assertEquals(2L, pool.getMetrics().getConnectionCreationFailures(), "creation failures");
+
+            //the database is reachable again, both permits must still be available
+            Connection first = pool.getConnection(1000L);
+            Connection second = pool.getConnection(1000L);
+            assertEquals(2, pool.getMetrics().getActiveConnections(), "active connections after recovery");
+            pool.releaseConnection(first);
+            pool.releaseConnection(second);
+        } finally {
+            pool.close();
+        }
+    }
+
+    public static void testMinIdleDefaultNeverExceedsMaxActive() {
+        assertEquals(1, new PoolConfiguration(properties("maxActive", "1")).getMinIdle(), "minIdle of a single connection pool");
+    }
+
+    static boolean isThreadAlive(String name) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (System.currentTimeMillis() < deadline) {
+            if (Thread.getAllStackTraces().keySet().stream().noneMatch(t -> t.getName().equals(name))) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    static boolean isMBeanRegistered(String poolName) throws Exception {
+        return !ManagementFactory.getPlatformMBeanServer()
+                .queryNames(new javax.management.ObjectName("utility:type=DatabaseConnectionPool,*"), null).stream()
+                .filter(name -> name.getKeyProperty("name").contains(poolName))
+                .toList().isEmpty();
+    }
+
+    public static void testFailedWarmUpReleasesHousekeeperMBeanAndConnections() throws Exception {
+        for (String mode : new String[]{"SERIAL", "PARALLEL"}) {
+            FakeDatabase database = FakeDriver.newDatabase();
+            database.failNextConnects(1);
+            String poolName = "warmup-failure-" + mode;
+            Properties properties = properties("maxActive", "4", "minIdle", "3", "warmUpMode", mode, "warmUpThreads", "1",
+                    "registerMBean", "true", "poolName", poolName);
+            assertThrows(SQLException.class, () -> new DatabaseConnectionPool(database.getUrl(), "", "", new PoolConfiguration(properties)));
+
+            assertFalse(isThreadAlive(poolName + "-housekeeper"), mode + ": housekeeper still running");
+            assertFalse(isMBeanRegistered(poolName), mode + ": MBean still registered");
+            assertEquals(0, database.getOpenConnections(), mode + ": connections left open");
+        }
+    }
+
+    public static void testPoolsWithTheSameNameRegisterSeparateMBeans() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        String poolName = "shared-name";
+        DatabaseConnectionPool first = newPool(database, "registerMBean", "true", "poolName", poolName, "minIdle", "0");
+        DatabaseConnectionPool second = newPool(database, "registerMBean", "true", "poolName", poolName, "minIdle", "0");
+        javax.management.ObjectName query = new javax.management.ObjectName("utility:type=DatabaseConnectionPool,*");
+        try {
+            long registered = ManagementFactory.getPlatformMBeanServer().queryNames(query, null).stream()
+                    .filter(name -> name.getKeyProperty("name").startsWith("\"" + poolName))
+                    .count();
+            assertEquals(2L, registered, "MBeans registered for two pools sharing a name");
+        } finally {
+            first.close();
+            second.close();
+        }
+        assertFalse(isMBeanRegistered(poolName), "MBeans left after closing both pools");
+    }
+
+    public static void testReservedCapacityIsKeptForItsLane() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        DatabaseConnectionPool pool = newPool(database, "maxActive", "3", "reservedInteractive", "1");
+        try {
+            Connection batch1 = pool.getConnection(100L, ConnectionPriority.BATCH);
+            Connection batch2 = pool.getConnection(100L, ConnectionPriority.BATCH);
+            assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection(100L, ConnectionPriority.BATCH));
+
+            Connection interactive = pool.getConnection(100L, ConnectionPriority.INTERACTIVE);
+            assertEquals(3, pool.getMetrics().getActiveConnections(), "active connections");
+            for (Connection connection : List.of(batch1, batch2, interactive)) {
+                pool.releaseConnection(connection);
+            }
+            assertEquals(1L, pool.getMetrics().getAcquireTimeouts(), "acquire timeouts");
+        } finally {
+            pool.close();
+        }
+    }
+
+    public static void testHigherPriorityWaiterIsServedFirst() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        DatabaseConnectionPool pool = newPool(database, "maxActive", "1", "minIdle", "1");
+        List<String> order = java.util.Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            Connection held = pool.getConnection(1000L);
+            Thread batch = waiter(pool, ConnectionPriority.BATCH, order, failure);
+            awaitPending(pool, 1);
+            Thread interactive = waiter(pool, ConnectionPriority.INTERACTIVE, order, failure);
+            awaitPending(pool, 2);
+
+            pool.releaseConnection(held);
+            batch.join(5000);
+            interactive.join(5000);
+            assertEquals(null, failure.get(), "waiter failure");
+            assertEquals(List.of("INTERACTIVE", "BATCH"), order, "order connections were granted in");
+        } finally {
+            pool.close();
+        }
+    }
+
+    private static Thread waiter(DatabaseConnectionPool pool, ConnectionPriority priority, List<String> order, AtomicReference<Throwable> failure) {
+        Thread thread = new Thread(() -> {
+            try {
+                Connection connection = pool.getConnection(5000L, priority);
+                order.add(priority.name());
+                Thread.sleep(20);
+                pool.releaseConnection(connection);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitPending(DatabaseConnectionPool pool, int pending) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (pool.getMetrics().getPendingThreads() < pending && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(pending, pool.getMetrics().getPendingThreads(), "pending threads");
+    }
+}
@@ -0,0 +1,46 @@
+package utility;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertThrows;
+
+public class LongKeyMapTest {
+    public static void testMatchesHashMapUnderRandomPutsAndRemoves() {
+        LongKeyMap<String> map = new LongKeyMap<>(4);
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            //a narrow key range forces collisions, probe runs and backward shifts on remove
+            long key = random.nextInt(512) - 256;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key), "remove " + key);
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value), "put " + key);
+            }
+        }
+
+        assertEquals(expected.size(), map.size(), "size");
+        for (long key = -256; key < 256; key++) {
+            assertEquals(expected.get(key), map.get(key), "get " + key);
+            assertEquals(expected.containsKey(key), map.containsKey(key), "containsKey " + key);
+        }
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+        assertEquals(expected.keySet().stream().sorted().toList().toString(), Arrays.toString(keys), "keys");
+    }
+
+    public static void testNullValuesAreRejected() {
+        LongKeyMap<String> map = new LongKeyMap<>();
+        assertThrows(IllegalArgumentException.class, () -> map.put(1L, null));
+        assertEquals("d", map.getOrDefault(1L, "d"), "default for a missing key");
+        map.put(1L, "a");
+        map.clear();
+        assertEquals(0, map.size(), "size after clear");
+        assertEquals(null, map.get(1L), "value after clear");
+    }
+}
@@ -0,0 +1,106 @@
+package utility;
+
+import testsupport.FakeDatabase;
+import testsupport.FakeDriver;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static testsupport.Assert.assertEquals;
+import static testsupport.Assert.assertFalse;
+import static testsupport.Assert.assertThrows;
+import static testsupport.Assert.assertTrue;
+import static utility.DatabaseConnectionPoolTest.isMBeanRegistered;
+import static utility.DatabaseConnectionPoolTest.newPool;
+
+public class PoolMetricsTest {
+    public static void testHistogramPercentilesFollowRecordedLatencies() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertEquals(100L, histogram.getCount(), "count");
+        //100us falls in the bucket below 128us, the single slow value is only reached by the top percentile
+        assertEquals(0.128, histogram.getPercentileMillis(50), "p50");
+        assertEquals(0.128, histogram.getPercentileMillis(99), "p99");
+        assertEquals(50.0, histogram.getPercentileMillis(100), "p100");
+        assertEquals(50.0, histogram.getMaxMillis(), "max");
+        assertTrue(Math.abs(histogram.getMeanMillis() - 0.599) < 1e-9, "mean " + histogram.getMeanMillis());
+        assertEquals(1L, histogram.getBuckets().get("<65.536ms"), "bucket of the slow value");
+    }
+
+    public static void testEmptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0.0, histogram.getPercentileMillis(99), "p99");
+        assertEquals(0.0, histogram.getMeanMillis(), "mean");
+    }
+
+    public static void testAcquireWaitIsRecordedForBlockedBorrowers() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        DatabaseConnectionPool pool = newPool(database, "maxActive", "1", "minIdle", "1");
+        try {
+            Connection held = pool.getConnection(1000L);
+            CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return pool.getConnection(5000L);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Thread.sleep(100);
+            pool.releaseConnection(held);
+            pool.releaseConnection(waiting.get(5, TimeUnit.SECONDS));
+
+            PoolMetrics metrics = pool.getMetrics();
+            assertEquals(2L, metrics.getAcquireCount(), "acquires");
+            assertTrue(metrics.getAcquireWaitMaxMillis() >= 90, "max acquire wait " + metrics.getAcquireWaitMaxMillis());
+            assertTrue(metrics.getAcquireWaitP99Millis() >= 50, "p99 acquire wait " + metrics.getAcquireWaitP99Millis());
+            assertEquals(2L, metrics.getConnectionHold().getCount(), "recorded holds");
+        } finally {
+            pool.close();
+        }
+    }
+
+    public static void testTimeoutAndValidationFailuresAreCounted() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        DatabaseConnectionPool pool = newPool(database, "maxActive", "1", "minIdle", "1", "validationWindow", "0");
+        try {
+            Connection connection = pool.getConnection(1000L);
+            assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection(50L));
+            assertEquals(1L, pool.getMetrics().getAcquireTimeouts(), "acquire timeouts");
+
+            //a connection that died while idle fails validation on the next borrow and is replaced
+            pool.releaseConnection(connection);
+            connection.close();
+            Connection replacement = pool.getConnection(1000L);
+            assertTrue(replacement != connection, "dead connection handed out again");
+            assertEquals(1L, pool.getMetrics().getValidationFailures(), "validation failures");
+            pool.releaseConnection(replacement);
+        } finally {
+            pool.close();
+        }
+    }
+
+    public static void testMBeanIsRegisteredUntilThePoolCloses() throws Exception {
+        FakeDatabase database = FakeDriver.newDatabase();
+        String poolName = "metrics-mbean";
+        DatabaseConnectionPool pool = newPool(database, "registerMBean", "true", "poolName", poolName, "maxActive", "3", "minIdle", "1");
+        try {
+            assertTrue(isMBeanRegistered(poolName), "MBean registered");
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("utility:type=DatabaseConnectionPool,name=" + ObjectName.quote(poolName));
+            assertEquals(3, server.getAttribute(name, "MaxActive"), "MaxActive attribute");
+            assertEquals(1, server.getAttribute(name, "TotalConnections"), "TotalConnections attribute");
+        } finally {
+            pool.close();
+        }
+        assertFalse(isMBeanRegistered(poolName), "MBean left registered after close");
+    }
+}